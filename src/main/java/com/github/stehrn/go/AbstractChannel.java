@@ -0,0 +1,181 @@
+package com.github.stehrn.go;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * State and parking logic common to every kind of channel: the lock, the queues of parked senders and receivers, and
+ * closing.
+ * <p>
+ * Buffered channels exchange values through a lock-free store and only use the lock to park, or to wake a routine
+ * parked on the other side, see {@link #awaitSpace(Occupancy, long)} and
+ * {@link #awaitValue(Occupancy, long)}.
+ */
+abstract class AbstractChannel {
+
+    final ReentrantLock lock = new ReentrantLock();
+    final WaitQueue senders = new WaitQueue();
+    final WaitQueue receivers = new WaitQueue();
+    volatile boolean closed;
+    WaitStrategy waitStrategy = WaitStrategy.BLOCKING;
+
+    /**
+     * Close the channel, any threads blocking on one of methods to send or receive a value from the channel
+     * will become unblocked.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                throw new ChannelException("Channel already closed");
+            }
+            closed = true;
+            senders.close();
+            receivers.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait (as the channel's {@code WaitStrategy} dictates) on a queued node until it is fired or the timeout elapses;
+     * if the routine is interrupted first the node is withdrawn from the queue and, unless the channel has been closed
+     * in the meantime, a {@code ChannelException} is thrown, or if the routine's {@code Context} is cancelled first a
+     * {@code CancellationException}. When fired, {@code node.closed} tells whether the channel was closed.
+     *
+     * @return true if fired, false if timed out
+     */
+    boolean await(WaitQueue queue, WaitQueue.Node node, long nanos) {
+        if (Context.await(waitStrategy, node.waiter, nanos)) {
+            return true;
+        }
+        lock.lock();
+        try {
+            queue.remove(node);
+        } finally {
+            lock.unlock();
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            if (!closed) {
+                throw new ChannelException("Channel failure: interrupted");
+            }
+            node.closed = true;
+            return true;
+        }
+        Context.checkBound();
+        return false;
+    }
+
+    ChannelException closedException() {
+        return new ChannelException("Channel is closed");
+    }
+
+    /**
+     * Park until the buffer may have space
+     *
+     * @param nanos timeout, or {@code Waiter.FOREVER}
+     * @return false if the channel was closed or the timeout elapsed
+     */
+    boolean awaitSpace(Occupancy buffer, long nanos) {
+        WaitQueue.Node node = enqueue(senders);
+        if (node == null) {
+            return false;
+        }
+        if (buffer.isFull()) {
+            return await(senders, node, nanos) && !node.closed;
+        }
+        withdraw(senders, node);
+        Thread.yield(); // a claimed slot is still being filled or emptied
+        return true;
+    }
+
+    /**
+     * Park until the buffer may have a value
+     *
+     * @param nanos timeout, or {@code Waiter.FOREVER}
+     * @return false if the channel was closed or the timeout elapsed
+     */
+    boolean awaitValue(Occupancy buffer, long nanos) {
+        WaitQueue.Node node = enqueue(receivers);
+        if (node == null) {
+            return false;
+        }
+        if (buffer.isEmpty()) {
+            return await(receivers, node, nanos) && !node.closed;
+        }
+        withdraw(receivers, node);
+        Thread.yield(); // a claimed slot is still being filled or emptied
+        return true;
+    }
+
+    private WaitQueue.Node enqueue(WaitQueue queue) {
+        lock.lock();
+        try {
+            if (closed) {
+                return null;
+            }
+            WaitQueue.Node node = new WaitQueue.Node(new Waiter(), 0);
+            queue.add(node);
+            return node;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Take a node that turned out not to need to park back off its queue, if it was fired in the meantime the wake-up
+     * it was given is passed on to the next waiter
+     */
+    private void withdraw(WaitQueue queue, WaitQueue.Node node) {
+        if (node.waiter.cancel()) {
+            lock.lock();
+            try {
+                queue.remove(node);
+            } finally {
+                lock.unlock();
+            }
+        } else if (!node.closed) {
+            signal(queue);
+        }
+    }
+
+    /**
+     * Wake up to {@code n} routines parked on the given queue, taking the lock once
+     */
+    void signal(WaitQueue queue, int n) {
+        if (n == 1) {
+            signal(queue);
+            return;
+        }
+        if (queue.isEmpty()) {
+            return;
+        }
+        lock.lock();
+        try {
+            WaitQueue.Node node;
+            for (int i = 0; i < n && (node = queue.fire()) != null; i++) {
+                node.waiter.unpark();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wake the first routine parked on the given queue, if any
+     */
+    void signal(WaitQueue queue) {
+        if (queue.isEmpty()) {
+            return;
+        }
+        WaitQueue.Node node;
+        lock.lock();
+        try {
+            node = queue.fire();
+        } finally {
+            lock.unlock();
+        }
+        if (node != null) {
+            node.waiter.unpark();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.github.stehrn.go;
+
+/**
+ * Thread safe store backing a buffered channel, operations never block.
+ */
+interface Buffer<E> extends Occupancy {
+
+    /**
+     * @return true if value was added, false if buffer is full
+     */
+    boolean offer(E value);
+
+    /**
+     * @return value, or null if buffer is empty
+     */
+    E poll();
+
+    /**
+     * Add as many of the given values as there is space for, in order; implementations claim all the slots with one
+     * atomic operation where they can
+     *
+     * @param values values of type {@code E}, none null
+     * @param from   index of first value to add
+     * @param to     index after last value to add
+     * @return number of values added, 0 if buffer is full
+     */
+    @SuppressWarnings("unchecked")
+    default int offer(Object[] values, int from, int to) {
+        int n = 0;
+        while (from + n < to && offer((E) values[from + n])) {
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Remove up to {@code max} values, in order; implementations claim all the slots with one atomic operation where
+     * they can. Values are stored unmasked (see {@code Channel.unmask}) so they can go straight into a typed array.
+     *
+     * @param into   array to remove values into
+     * @param offset index in array of first value removed
+     * @param max    maximum number of values to remove
+     * @return number of values removed, 0 if buffer is empty
+     */
+    default int poll(Object[] into, int offset, int max) {
+        int n = 0;
+        E value;
+        while (n < max && (value = poll()) != null) {
+            into[offset + n++] = Channel.unmask(value);
+        }
+        return n;
+    }
+}
@@ -0,0 +1,123 @@
+package com.github.stehrn.go;
+
+/**
+ * Buffered channel, values are exchanged through a {@code Buffer}.
+ * <p>
+ * Senders and receivers only touch the channel lock when they need to park (buffer full or empty), or when they see
+ * a routine parked on the other side that needs waking.
+ */
+final class BufferedChannel<T> extends Channel<T> {
+
+    private final Buffer<T> buffer;
+
+    BufferedChannel(Buffer<T> buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    boolean put(T value, long nanos) {
+        if (closed) {
+            throw closedException();
+        }
+        if (!buffer.offer(value)) {
+            if (nanos == 0) {
+                return false;
+            }
+            long deadline = Waiter.deadline(nanos);
+            do {
+                if (!awaitSpace(buffer, Waiter.remaining(nanos, deadline))) {
+                    return false;
+                }
+            } while (!buffer.offer(value));
+        }
+        signal(receivers);
+        return true;
+    }
+
+    /**
+     * Values buffered when the channel is closed can still be received, only once the buffer is empty does a receive
+     * report the channel closed (as in go)
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    T take(long nanos) {
+        T value = buffer.poll();
+        if (value == null) {
+            long deadline = Waiter.deadline(nanos);
+            do {
+                if (closed) {
+                    if (buffer.isEmpty()) {
+                        return null;
+                    }
+                    Thread.yield(); // a claimed slot is still being filled
+                } else if (nanos == 0) {
+                    return (T) NONE;
+                } else if (!awaitValue(buffer, Waiter.remaining(nanos, deadline)) && !closed) {
+                    return (T) NONE;
+                }
+            } while ((value = buffer.poll()) == null);
+        }
+        signal(senders);
+        return value;
+    }
+
+    @Override
+    void putAll(Object[] values) {
+        int from = 0;
+        while (from < values.length) {
+            if (closed) {
+                throw closedException(); // checked each batch, so nothing is sent once the channel is closed
+            }
+            int n = buffer.offer(values, from, values.length);
+            if (n > 0) {
+                from += n;
+                signal(receivers, n);
+            } else if (!awaitSpace(buffer, Waiter.FOREVER)) {
+                throw closedException();
+            }
+        }
+    }
+
+    @Override
+    int takeAll(Object[] into, int offset, int max, long nanos) {
+        int n = buffer.poll(into, offset, max);
+        if (n == 0) {
+            long deadline = Waiter.deadline(nanos);
+            do {
+                if (closed) {
+                    if (buffer.isEmpty()) {
+                        return -1;
+                    }
+                    Thread.yield(); // a claimed slot is still being filled
+                } else if (nanos == 0) {
+                    return 0;
+                } else if (!awaitValue(buffer, Waiter.remaining(nanos, deadline)) && !closed) {
+                    return 0;
+                }
+            } while ((n = buffer.poll(into, offset, max)) == 0);
+        }
+        signal(senders, n);
+        return n;
+    }
+
+    @Override
+    boolean mayReceive() {
+        return closed || !buffer.isEmpty();
+    }
+
+    @Override
+    boolean maySend() {
+        return closed || !buffer.isFull();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    T received(WaitQueue.Node node) {
+        return (T) NONE;
+    }
+
+    @Override
+    boolean sent(WaitQueue.Node node) {
+        return false;
+    }
+}
@@ -1,7 +1,17 @@
 package com.github.stehrn.go;
 
-import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * When data needs to be shared between routines, a {@code Channel} will act as a facilitator, and guarantee the synchronous
@@ -34,34 +44,119 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * assertThat(message, is("message"))
  * }</pre>
  *
- * An {@code ExecutorService} is used to help control closing the channel and the interruption of any threads
- * currently blocked; care is also taken not to interrupt the borrowed thread making the blocking call.
+ * A routine that has to wait for a value (or for space) is queued on the channel and parked, the routine on the other
+ * side hands the value over directly and unparks it, as the go runtime does; no other threads are involved. Closing the
+ * channel wakes every parked routine, and an interrupted routine gives up its place in the queue.
+ * <p>
+ * To receive every value until the channel is closed (equivalent to {@code for v := range channel} in go), iterate over
+ * the channel, or stream it:
+ * <pre> {@code
+ * for (String message : channel) {
+ *     process(message);
+ * }
+ * channel.stream().parallel().forEach(message -> process(message));
+ * }</pre>
  */
-public class Channel<T> {
+public abstract class Channel<T> extends AbstractChannel implements Iterable<T> {
+
+    /**
+     * Stands in for a null value inside the channel, where null means closed
+     */
+    private static final Object NULL = new Object();
+
+    /**
+     * Returned by a receive that timed out (or would have had to block), as opposed to null for closed
+     */
+    static final Object NONE = new Object();
+
+    private static final AtomicLong IDS = new AtomicLong();
+
+    /**
+     * Most values {@code drainTo} takes from the channel at once
+     */
+    private static final int DRAIN_BATCH = 256;
+
+    /**
+     * Unique id, giving the order in which a select locks its channels
+     */
+    final long id = IDS.incrementAndGet();
 
-    private final BlockingQueue<T> values;
-    private final AtomicBoolean isClosed = new AtomicBoolean(false);
-    private final ExecutorService service = Executors.newCachedThreadPool();
+    Executor executor = ChannelOptions.ROUTINES;
 
-    private Channel(BlockingQueue<T> values) {
-        this.values = values;
+    /**
+     * Paces sends, if set
+     */
+    RateLimiter rateLimiter;
+
+    Channel() {
     }
 
     /**
      * Create an unbuffered channel
      * <p>
-     * Internally, this uses a SynchronousQueue, given a thread that wants to add an item to a SynchronousQueue must wait
-     * until another thread is ready to simultaneously take it off, with the same being true in reverse.
+     * A routine that wants to send a value must wait until another routine is ready to simultaneously take it off,
+     * with the same being true in reverse, the value is handed directly from one to the other.
      *
      * @param <T>
      * @return A channel that is unbuffered
      */
     public static <T> Channel<T> channel() {
-        return new Channel<>(new SynchronousQueue<>());
+        return new SyncChannel<>();
     }
 
+    /**
+     * Create a buffered channel
+     * <p>
+     * Values are held in a lock-free ring buffer, so any number of routines can send and receive concurrently without
+     * contending on a lock; routines only park when the buffer is full (senders) or empty (receivers).
+     *
+     * @param size capacity of buffer
+     * @param <T>
+     * @return A channel that is buffered
+     */
     public static <T> Channel<T> channel(int size) {
-        return new Channel<>(new ArrayBlockingQueue<>(size));
+        return new BufferedChannel<>(new MpmcArrayBuffer<>(size));
+    }
+
+    /**
+     * Create a buffered channel for a single producer and a single consumer
+     * <p>
+     * Point-to-point links between two routines don't need to pay for coordinating many senders or receivers: the
+     * buffer behind this channel is wait-free, with no CAS on either side. The caller must guarantee that only one
+     * routine at a time ever sends, and only one routine at a time ever receives; this is not checked.
+     *
+     * @param size capacity of buffer
+     * @param <T>
+     * @return A buffered channel for one sender and one receiver
+     */
+    public static <T> Channel<T> spsc(int size) {
+        return new BufferedChannel<>(new SpscArrayBuffer<>(size));
+    }
+
+    /**
+     * Create a buffered channel for many producers and a single consumer
+     * <p>
+     * Suits fan-in, where many routines send to one that aggregates: senders claim a slot with a single CAS, and the
+     * receiver never needs one. The caller must guarantee that only one routine at a time ever receives; this is not
+     * checked.
+     *
+     * @param size capacity of buffer
+     * @param <T>
+     * @return A buffered channel for many senders and one receiver
+     */
+    public static <T> Channel<T> mpsc(int size) {
+        return new BufferedChannel<>(new MpscArrayBuffer<>(size));
+    }
+
+    /**
+     * Create a channel with the given options
+     *
+     * @param options options for channel
+     * @param <T>
+     * @return A channel
+     */
+    public static <T> Channel<T> channel(ChannelOptions options) {
+        return options.create();
     }
 
     // equivalent to <- operator in go
@@ -69,109 +164,494 @@ public class Channel<T> {
     /**
      * Send a value into the channel (equivalent to @code{channel <- "message"} in go)
      *
-     * @param value value to send into channel
+     * @param value value to send into channel, may be null
      */
     public void send(T value) {
-        if (isClosed.get()) {
-            throw new ChannelException("Channel is closed");
+        pace(Waiter.FOREVER);
+        boolean sent = false;
+        try {
+            sent = put(mask(value), Waiter.FOREVER);
+        } finally {
+            if (!sent && rateLimiter != null) {
+                rateLimiter.release(1); // closed, cancelled or interrupted whilst waiting, give the permit back
+            }
         }
+    }
 
+    /**
+     * Send a value into the channel, giving up if the context is cancelled first
+     *
+     * @param context context the send is made on behalf of
+     * @param value   value to send into channel, may be null
+     * @throws java.util.concurrent.CancellationException if the context is (or has been) cancelled before the value
+     *                                                    is sent
+     */
+    public void send(Context context, T value) {
+        Context previous = context.bind();
         try {
-            Future<Void> future = service.submit(put(value));
-            future.get();
-        } catch (InterruptedException | CancellationException | RejectedExecutionException e) {
-            handleException(e);
-        } catch (ExecutionException e) {
-            throw new ChannelException(e.getMessage());
+            context.check();
+            send(value);
+        } finally {
+            Context.restore(previous);
         }
     }
 
+    /**
+     * Send a value into the channel only if that can be done without blocking, i.e. a receiver is waiting or there is
+     * space in the buffer (equivalent to a {@code select} with a {@code default} case in go)
+     *
+     * @param value value to send into channel, may be null
+     * @return true if value was sent
+     */
+    public boolean trySend(T value) {
+        if (!pace(0)) {
+            return false;
+        }
+        if (put(mask(value), 0)) {
+            return true;
+        }
+        if (rateLimiter != null) {
+            rateLimiter.release(1);
+        }
+        return false;
+    }
+
+    /**
+     * Send a value into the channel, blocking for at most the given timeout
+     *
+     * @param value   value to send into channel, may be null
+     * @param timeout maximum time to wait
+     * @param unit    unit of timeout
+     * @return true if value was sent, false if the timeout elapsed or the channel was closed whilst waiting
+     */
+    public boolean send(T value, long timeout, TimeUnit unit) {
+        long nanos = nanos(timeout, unit);
+        long deadline = Waiter.deadline(nanos);
+        if (!pace(nanos)) {
+            return false;
+        }
+        if (put(mask(value), Waiter.remaining(nanos, deadline))) {
+            return true;
+        }
+        if (rateLimiter != null) {
+            rateLimiter.release(1);
+        }
+        return false;
+    }
+
     /**
      * Receive a value from the channel (equivalent to @code{message := <-channel} in go)
+     * <p>
+     * Returns null if the channel is closed (and, if buffered, empty), so if null values are sent use {@code result(ChannelResult)} to tell the
+     * two apart.
+     *
      * @return value from channel
      */
     public T receive() {
-        if (isClosed.get()) {
-            return null;
-        }
+        return unmask(take(Waiter.FOREVER));
+    }
 
+    /**
+     * Receive a value from the channel, giving up if the context is cancelled first
+     *
+     * @param context context the receive is made on behalf of
+     * @return value from channel, or null if the channel is closed
+     * @throws java.util.concurrent.CancellationException if the context is (or has been) cancelled before a value is
+     *                                                    received
+     */
+    public T receive(Context context) {
+        Context previous = context.bind();
         try {
-            Future<T> future = service.submit(take());
-            return future.get();
-        } catch (InterruptedException | CancellationException | RejectedExecutionException e) {
-            return handleException(e);
-        } catch (ExecutionException e) {
-            throw new ChannelException(e.getMessage());
+            context.check();
+            return receive();
+        } finally {
+            Context.restore(previous);
         }
     }
 
+    /**
+     * Receive a value from the channel only if that can be done without blocking
+     *
+     * @return value from channel, or null if there is no value ready or the channel is closed
+     */
+    public T tryReceive() {
+        return value(take(0));
+    }
+
+    /**
+     * Receive a value from the channel, blocking for at most the given timeout
+     *
+     * @param timeout maximum time to wait
+     * @param unit    unit of timeout
+     * @return value from channel, or null if the timeout elapsed or the channel is closed
+     */
+    public T receive(long timeout, TimeUnit unit) {
+        return value(take(nanos(timeout, unit)));
+    }
+
+    /**
+     * Receive a value from the channel into the given result, only if that can be done without blocking
+     *
+     * @param result result to update, with either the value received or the channel closed
+     * @return false if there was no value ready, in which case result is left unchanged
+     */
+    public boolean tryReceive(ChannelResult<T> result) {
+        return update(result, take(0));
+    }
+
+    /**
+     * Receive a value from the channel into the given result, blocking for at most the given timeout
+     *
+     * @param result  result to update, with either the value received or the channel closed
+     * @param timeout maximum time to wait
+     * @param unit    unit of timeout
+     * @return false if the timeout elapsed, in which case result is left unchanged
+     */
+    public boolean receive(ChannelResult<T> result, long timeout, TimeUnit unit) {
+        return update(result, take(nanos(timeout, unit)));
+    }
+
     /**
      * Returns channel result from channel
      * @return channel result from channel
      */
     public ChannelResult<T> result() {
-        T value = receive();
-        return new ChannelResult<>(value, value == null);
+        return result(new ChannelResult<>());
+    }
+
+    /**
+     * Receive a value from the channel into the given result (equivalent to {@code message, ok := <-channel} in go),
+     * so a routine receiving in a loop can reuse one result rather than allocate one per value:
+     * <pre> {@code
+     * ChannelResult<String> result = new ChannelResult<>();
+     * while (!channel.result(result).isClosed()) {
+     *     process(result.result());
+     * }
+     * }</pre>
+     *
+     * @param result result to update
+     * @return the given result
+     */
+    public ChannelResult<T> result(ChannelResult<T> result) {
+        update(result, take(Waiter.FOREVER));
+        return result;
+    }
+
+    /**
+     * Send every value into the channel, in order, blocking until all have been sent; on a buffered channel as many
+     * values as fit are added to the buffer at once, and waiting receivers are woken once per batch rather than once
+     * per value
+     *
+     * @param values values to send into channel, may contain nulls
+     * @throws ChannelException if channel is closed before all values are sent
+     */
+    public void sendAll(Collection<? extends T> values) {
+        if (rateLimiter != null) {
+            values.forEach(this::send);
+        } else {
+            putAll(mask(values.toArray(), false));
+        }
+    }
+
+    /**
+     * As {@link #sendAll(Collection)}
+     *
+     * @param values values to send into channel, may contain nulls
+     */
+    public void sendAll(T[] values) {
+        if (rateLimiter != null) {
+            Arrays.asList(values).forEach(this::send);
+        } else {
+            putAll(mask(values, true));
+        }
+    }
+
+    /**
+     * Receive up to {@code max} values from the channel, blocking until there is at least one; on a buffered channel
+     * the values are taken from the buffer at once, and waiting senders are woken once per batch rather than once per
+     * value
+     *
+     * @param max  maximum number of values to receive
+     * @param into array to receive values into, from index 0
+     * @return number of values received, or -1 if the channel is closed
+     */
+    public int receive(int max, T[] into) {
+        if (max < 1 || max > into.length) {
+            throw new IllegalArgumentException("Max must be between 1 and " + into.length + ": " + max);
+        }
+        return takeAll(into, 0, max, Waiter.FOREVER);
+    }
+
+    /**
+     * Receive, without blocking, up to {@code max} values that are ready in the channel
+     *
+     * @param into collection to add values to
+     * @param max  maximum number of values to receive
+     * @return number of values received, 0 if none are ready or the channel is closed
+     */
+    @SuppressWarnings("unchecked")
+    public int drainTo(Collection<? super T> into, int max) {
+        if (max < 0) {
+            throw new IllegalArgumentException("Max must not be negative: " + max);
+        }
+        Object[] batch = new Object[Math.min(max, DRAIN_BATCH)];
+        int total = 0;
+        int n;
+        while (total < max && (n = takeAll(batch, 0, Math.min(max - total, batch.length), 0)) > 0) {
+            for (int i = 0; i < n; i++) {
+                into.add((T) batch[i]);
+                batch[i] = null;
+            }
+            total += n;
+        }
+        return total;
+    }
+
+    /**
+     * Iterate over values received from the channel until it is closed; {@code hasNext()} blocks until there is a value
+     * or the channel is closed
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private final ChannelResult<T> result = new ChannelResult<>();
+            private boolean ready;
+
+            @Override
+            public boolean hasNext() {
+                if (!ready) {
+                    result(result);
+                    ready = true;
+                }
+                return !result.isClosed();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException("Channel is closed");
+                }
+                ready = false;
+                return result.result();
+            }
+        };
+    }
+
+    /**
+     * Run the action for every value received from the channel until it is closed
+     */
+    @Override
+    public void forEach(Consumer<? super T> action) {
+        ChannelResult<T> result = new ChannelResult<>();
+        while (!result(result).isClosed()) {
+            action.accept(result.result());
+        }
+    }
+
+    /**
+     * Spliterator over values received from the channel until it is closed, see {@link #stream()}
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        return new ChannelSpliterator<>(this);
+    }
+
+    /**
+     * Stream of values received from the channel until it is closed; a parallel stream receives values in small
+     * batches, growing as the stream goes on, so each worker is woken once per batch rather than once per value
+     *
+     * @return stream of values, which may be null
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Send a value into the channel without blocking the calling routine; if the value can't be sent straight away,
+     * the send completes on the channel's executor
+     *
+     * @param value value to send into channel, may be null
+     * @return future completed once value is sent
+     */
+    public CompletableFuture<Void> sendAsync(T value) {
+        if (trySend(value)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.runAsync(() -> send(value), executor);
+    }
+
+    /**
+     * Receive a value from the channel without blocking the calling routine; if there is no value ready, the receive
+     * completes on the channel's executor
+     *
+     * @return future completed with channel result
+     */
+    public CompletableFuture<ChannelResult<T>> receiveAsync() {
+        ChannelResult<T> result = new ChannelResult<>();
+        if (tryReceive(result)) {
+            return CompletableFuture.completedFuture(result);
+        }
+        return CompletableFuture.supplyAsync(() -> result(result), executor);
     }
 
     /**
      * Close the channel, any threads blocking on one of methods to send or receive a value from the channel
      * will become unblocked.
      *
-     * A call to {@code receive()} will immediately return null, whist a call to {@code result()} will return
-     * a result with a null value and a call to {@code ChannelResult.isClosed()} will return {@code true}
+     * Any values already buffered can still be received, as in go; once they have been, a call to {@code receive()}
+     * will immediately return null, whist a call to {@code result()} will return a result with a null value and a call
+     * to {@code ChannelResult.isClosed()} will return {@code true}
      */
+    @Override
     public void close() {
-        if (isClosed.getAndSet(true)) {
-            throw new ChannelException("Channel already closed");
+        super.close();
+    }
+
+    /**
+     * Send a non null (masked) value, blocking until it has been received (or buffered)
+     *
+     * @param nanos timeout, 0 to not block at all, or {@code Waiter.FOREVER}
+     * @return true if sent, false if timed out or channel closed whilst waiting
+     */
+    abstract boolean put(T value, long nanos);
+
+    /**
+     * Receive a value, blocking until one is available
+     *
+     * @param nanos timeout, 0 to not block at all, or {@code Waiter.FOREVER}
+     * @return masked value, null if channel is closed, or {@code NONE} if timed out
+     */
+    abstract T take(long nanos);
+
+    /**
+     * Send the (masked) values in order, blocking until all are sent, by default one at a time
+     *
+     * @throws ChannelException if channel is closed before all values are sent
+     */
+    @SuppressWarnings("unchecked")
+    void putAll(Object[] values) {
+        for (Object value : values) {
+            if (!put((T) value, Waiter.FOREVER)) {
+                throw closedException();
+            }
+        }
+    }
+
+    /**
+     * Receive up to {@code max} values, blocking until there is at least one, by default one at a time; values are
+     * stored unmasked, so they can go straight into a typed array
+     *
+     * @param nanos timeout, 0 to not block at all, or {@code Waiter.FOREVER}
+     * @return number of values received, 0 if timed out, or -1 if channel is closed
+     */
+    int takeAll(Object[] into, int offset, int max, long nanos) {
+        T value = take(nanos);
+        if (value == null) {
+            return -1;
         }
+        if (value == NONE) {
+            return 0;
+        }
+        into[offset] = unmask(value);
+        int n = 1;
+        while (n < max && (value = take(0)) != NONE && value != null) {
+            into[offset + n++] = unmask(value);
+        }
+        return n;
+    }
+
+    /**
+     * Whether a receive might now complete without waiting even though a select found it could not whilst holding the
+     * lock; only possible where values move outside the lock
+     */
+    abstract boolean mayReceive();
+
+    /**
+     * As {@link #mayReceive()}, for send
+     */
+    abstract boolean maySend();
 
-        service.shutdownNow(); // will cause Thread blocked on items.take() and/or items.out() to be interrupted
+    /**
+     * Called when a select was fired for a receive on this channel
+     *
+     * @param node node the select queued, already removed from queue
+     * @return masked value, null if channel is closed, or {@code NONE} if the select was only told a value may be
+     * ready and should try again
+     */
+    abstract T received(WaitQueue.Node node);
 
+    /**
+     * Called when a select was fired for a send on this channel
+     *
+     * @param node node the select queued (holding the value), already removed from queue
+     * @return true if the value was sent, false if the select was only told there may be space and should try again
+     */
+    abstract boolean sent(WaitQueue.Node node);
+
+    /**
+     * Wait until the rate limiter, if there is one, allows a value to be sent
+     *
+     * @param nanos timeout, 0 to not wait at all, or {@code Waiter.FOREVER}
+     * @return false if a value can't be sent within the timeout
+     */
+    private boolean pace(long nanos) {
         try {
-            boolean isShutdown = service.awaitTermination(1000, TimeUnit.MILLISECONDS);
-            if (!isShutdown) {
-                throw new ChannelException("Failed to cleanly shut down channel: executor could not be terminated");
-            }
+            return rateLimiter == null || rateLimiter.acquire(1, nanos);
         } catch (InterruptedException e) {
-            throw new ChannelException("Failed to cleanly shut down channel: " + e.getMessage());
+            Thread.currentThread().interrupt();
+            throw new ChannelException("Channel failure: interrupted");
         }
     }
 
-    private Callable<T> take() {
-        return () -> {
-            try {
-                return values.take(); // this can block
-            } catch (InterruptedException e) {
-                return handleException(e);
-            }
-        };
+    static long nanos(long timeout, TimeUnit unit) {
+        return Math.max(0, unit.toNanos(timeout));
     }
 
-    private Callable<Void> put(T value) {
-        return () -> {
-            try {
-                values.put(value); // this can block
-                return null;
-            } catch (InterruptedException e) {
-                handleException(e);
-                return null;
-            }
-        };
+    private static <T> T value(T value) {
+        return value == NONE ? null : unmask(value);
     }
 
-    private T handleException(Exception e) {
-        if (isClosed.get()) {
-            return null;
-        } else {
-            throw new ChannelException("Channel failure: " + e.getMessage());
+    private static <T> boolean update(ChannelResult<T> result, T value) {
+        if (value == NONE) {
+            return false;
         }
+        result.set(unmask(value), value == null);
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T mask(T value) {
+        return value == null ? (T) NULL : value;
+    }
+
+    static <T> T unmask(T value) {
+        return value == NULL ? null : value;
+    }
+
+    /**
+     * @param copy true if values must be copied rather than masked in place, they are also copied if the array can't
+     *             hold the {@code NULL} sentinel (e.g. a {@code String[]})
+     */
+    private static Object[] mask(Object[] values, boolean copy) {
+        Object[] masked = values;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null) {
+                if (masked == values && (copy || values.getClass() != Object[].class)) {
+                    masked = Arrays.copyOf(values, values.length, Object[].class);
+                }
+                masked[i] = NULL;
+            }
+        }
+        return masked;
     }
 
     public static class ChannelResult<T> {
 
-        private final T result;
-        private final boolean isClosed;
+        private T result;
+        private boolean isClosed;
+
+        public ChannelResult() {
+        }
 
         public ChannelResult(T result, boolean isClosed) {
             this.result = result;
@@ -185,5 +665,10 @@ public class Channel<T> {
         public boolean isClosed() {
             return isClosed;
         }
+
+        void set(T result, boolean isClosed) {
+            this.result = result;
+            this.isClosed = isClosed;
+        }
     }
 }
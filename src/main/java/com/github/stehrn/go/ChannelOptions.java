@@ -0,0 +1,101 @@
+package com.github.stehrn.go;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Options for creating a {@code Channel}, an alternative to the {@code channel} factory methods when more than the
+ * buffer size needs to be specified:
+ * <pre> {@code
+ * Channel<Reply> replies = channel(options().size(1).singleConsumer());
+ * }</pre>
+ * A channel never owns any threads, routines block on their own thread when they send or receive. Any auxiliary work
+ * a channel has to hand off, such as completing {@code sendAsync}/{@code receiveAsync}, runs on the {@code executor},
+ * which by default is shared by every channel and runs the work as a {@code Routine}.
+ */
+public final class ChannelOptions {
+
+    static final Executor ROUTINES = Routine::go;
+
+    private int size;
+    private boolean singleProducer;
+    private boolean singleConsumer;
+    private Executor executor = ROUTINES;
+    private WaitStrategy waitStrategy = WaitStrategy.BLOCKING;
+    private RateLimiter rateLimiter;
+
+    private ChannelOptions() {
+    }
+
+    public static ChannelOptions options() {
+        return new ChannelOptions();
+    }
+
+    /**
+     * @param size capacity of buffer, 0 (the default) for an unbuffered channel
+     */
+    public ChannelOptions size(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Size must not be negative: " + size);
+        }
+        this.size = size;
+        return this;
+    }
+
+    /**
+     * Only one routine at a time will ever send (applies to buffered channels only, not checked)
+     */
+    public ChannelOptions singleProducer() {
+        this.singleProducer = true;
+        return this;
+    }
+
+    /**
+     * Only one routine at a time will ever receive (applies to buffered channels only, not checked)
+     */
+    public ChannelOptions singleConsumer() {
+        this.singleConsumer = true;
+        return this;
+    }
+
+    /**
+     * @param executor executor to run auxiliary work on, best shared between many channels
+     */
+    public ChannelOptions executor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * @param waitStrategy how routines wait on the channel, by default they park straight away
+     */
+    public ChannelOptions waitStrategy(WaitStrategy waitStrategy) {
+        this.waitStrategy = waitStrategy;
+        return this;
+    }
+
+    /**
+     * @param rateLimiter limiter every send must acquire a permit from first, pacing values into the channel (a send
+     *                    in a {@code Select} isn't paced); may be shared between channels to pace them together
+     */
+    public ChannelOptions rateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+        return this;
+    }
+
+    <T> Channel<T> create() {
+        Channel<T> channel;
+        if (size == 0) {
+            channel = new SyncChannel<>();
+        } else if (singleProducer && singleConsumer) {
+            channel = new BufferedChannel<>(new SpscArrayBuffer<>(size));
+        } else if (singleConsumer) {
+            channel = new BufferedChannel<>(new MpscArrayBuffer<>(size));
+        } else {
+            channel = new BufferedChannel<>(new MpmcArrayBuffer<>(size));
+        }
+        channel.executor = executor;
+        channel.waitStrategy = waitStrategy.forChannel();
+        channel.rateLimiter = rateLimiter;
+        return channel;
+    }
+}
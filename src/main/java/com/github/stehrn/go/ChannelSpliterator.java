@@ -0,0 +1,65 @@
+package com.github.stehrn.go;
+
+import com.github.stehrn.go.Channel.ChannelResult;
+
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over the values received from a channel until it is closed.
+ * <p>
+ * Splitting receives a batch of values (blocking until there is at least one) and hands them off as an array, so each
+ * worker of a parallel stream takes values from the channel a batch at a time; batches start small, so a slow trickle
+ * of values is still spread across workers, and double in size up to {@code MAX_BATCH}. The values are received in
+ * channel order, and each batch comes before whatever is left, so the spliterator is {@code ORDERED}.
+ */
+final class ChannelSpliterator<T> implements Spliterator<T> {
+
+    private static final int INITIAL_BATCH = 16;
+    private static final int MAX_BATCH = 1024;
+
+    private final Channel<T> channel;
+    private final ChannelResult<T> result = new ChannelResult<>();
+    private int batch = INITIAL_BATCH;
+
+    ChannelSpliterator(Channel<T> channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        if (channel.result(result).isClosed()) {
+            return false;
+        }
+        action.accept(result.result());
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+        channel.forEach(action);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Spliterator<T> trySplit() {
+        Object[] values = new Object[batch];
+        int n = channel.takeAll(values, 0, values.length, Waiter.FOREVER);
+        if (n <= 0) {
+            return null;
+        }
+        batch = Math.min(batch * 2, MAX_BATCH);
+        return (Spliterator<T>) Spliterators.spliterator(values, 0, n, ORDERED);
+    }
+
+    @Override
+    public long estimateSize() {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | CONCURRENT;
+    }
+}
@@ -0,0 +1,263 @@
+package com.github.stehrn.go;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Carries a cancellation signal, and optionally a deadline, across the routines and channel operations working on
+ * one request (equivalent to {@code context.Context} in go):
+ * <pre> {@code
+ * Context request = Context.background().withTimeout(2, TimeUnit.SECONDS);
+ * go(request, () -> {
+ *     Reply reply = replies.receive(); // gives up once the request is cancelled
+ *     ...
+ * });
+ * ...
+ * request.cancel();
+ * }</pre>
+ * A context is cancelled by {@link #cancel()}, once its deadline passes, or when its parent is cancelled; cancelling a
+ * context cancels all its children with it, and closes its {@link #done()} channel.
+ * <p>
+ * A routine started with {@code Routine.go(context, ...)} runs with the context bound to it, as does a call to
+ * {@code Channel.send(context, value)} or {@code Channel.receive(context)}. Whilst a context is bound, every channel
+ * operation (including a {@code Select}) and every rate limiter wait the routine blocks in registers its waiter with
+ * the context, and cancelling the context cancels each registered waiter and unparks its routine, which then throws a
+ * {@code CancellationException}; no thread is interrupted, so cancelling only ever wakes routines actually blocked on
+ * behalf of the context, and costs a single pass over them. A routine that doesn't block can check
+ * {@link #isCancelled()} instead.
+ * <p>
+ * A child context is held by its parent until it is cancelled, so, as in go, cancel a child once done with it.
+ */
+public final class Context {
+
+    private static final Context BACKGROUND = new Context(null, 0, false);
+    private static final ThreadLocal<Context> BOUND = new ThreadLocal<>();
+
+    private final Context parent;
+    private final long deadline;
+    private final boolean hasDeadline;
+    private final Set<Waiter> waiters = ConcurrentHashMap.newKeySet();
+    private final Set<Context> children = ConcurrentHashMap.newKeySet();
+    private volatile String reason;
+    private volatile Expiry expiry;
+    private Channel<Void> done;
+
+    private Context(Context parent, long deadline, boolean hasDeadline) {
+        this.parent = parent;
+        this.deadline = deadline;
+        this.hasDeadline = hasDeadline;
+    }
+
+    /**
+     * @return context that is never cancelled and has no deadline, the root of every other context
+     */
+    public static Context background() {
+        return BACKGROUND;
+    }
+
+    /**
+     * @return context bound to the calling routine, or the background context if there is none
+     */
+    public static Context current() {
+        Context context = BOUND.get();
+        return context == null ? BACKGROUND : context;
+    }
+
+    /**
+     * @return child context, cancelled by its own {@link #cancel()} or with this context
+     */
+    public Context withCancel() {
+        return child(deadline, hasDeadline);
+    }
+
+    /**
+     * @return child context, also cancelled once the timeout has elapsed (or sooner, by this context's deadline)
+     */
+    public Context withTimeout(long timeout, TimeUnit unit) {
+        long at = System.nanoTime() + Channel.nanos(timeout, unit);
+        return hasDeadline && deadline - at <= 0 ? withCancel() : child(at, true);
+    }
+
+    /**
+     * @return child context, also cancelled once the deadline has passed (or sooner, by this context's deadline)
+     */
+    public Context withDeadline(Instant deadline) {
+        return withTimeout(Math.max(0, Duration.between(Instant.now(), deadline).toNanos()), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Cancel this context and all its children, waking every routine blocked on their behalf; has no effect if already
+     * cancelled
+     */
+    public void cancel() {
+        cancel("Context cancelled");
+    }
+
+    public boolean isCancelled() {
+        return reason != null;
+    }
+
+    /**
+     * @return why the context was cancelled ({@code "Context cancelled"} or {@code "Context deadline exceeded"}), or
+     * null if it hasn't been
+     */
+    public String reason() {
+        return reason;
+    }
+
+    /**
+     * @return time left until the deadline, 0 if passed, or {@code Long.MAX_VALUE} if there is no deadline
+     */
+    public long remaining(TimeUnit unit) {
+        return hasDeadline ? unit.convert(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)
+                : Long.MAX_VALUE;
+    }
+
+    /**
+     * @return channel closed once the context is cancelled, to select on alongside other channels
+     */
+    public synchronized Channel<Void> done() {
+        if (done == null) {
+            done = Channel.channel();
+            if (reason != null) {
+                done.close();
+            }
+        }
+        return done;
+    }
+
+    /**
+     * @throws CancellationException if this context has been cancelled
+     */
+    public void check() {
+        String reason = this.reason;
+        if (reason != null) {
+            throw new CancellationException(reason);
+        }
+    }
+
+    /**
+     * Bind this context to the calling routine, until {@link #restore(Context)} is called with the context returned
+     *
+     * @return context previously bound, possibly null
+     */
+    Context bind() {
+        Context previous = BOUND.get();
+        BOUND.set(this == BACKGROUND ? null : this);
+        return previous;
+    }
+
+    static void restore(Context previous) {
+        BOUND.set(previous);
+    }
+
+    /**
+     * Wait on the waiter as the strategy dictates, with the waiter registered with the context bound to the calling
+     * routine, if any, so cancelling the context cancels the wait
+     *
+     * @return true if fired, false if cancelled (including by the context) or timed out
+     */
+    static boolean await(WaitStrategy strategy, Waiter waiter, long nanos) {
+        Context context = BOUND.get();
+        if (context == null) {
+            return strategy.await(waiter, nanos);
+        }
+        context.waiters.add(waiter);
+        try {
+            if (context.reason != null) {
+                waiter.cancel(); // cancelled before registered, so cancel didn't see the waiter
+            }
+            return strategy.await(waiter, nanos);
+        } finally {
+            context.waiters.remove(waiter);
+        }
+    }
+
+    /**
+     * @throws CancellationException if the context bound to the calling routine has been cancelled
+     */
+    static void checkBound() {
+        Context context = BOUND.get();
+        if (context != null) {
+            context.check();
+        }
+    }
+
+    private Context child(long deadline, boolean hasDeadline) {
+        Context child = new Context(this == BACKGROUND ? null : this, deadline, hasDeadline);
+        if (child.parent != null) {
+            children.add(child);
+            String reason = this.reason;
+            if (reason != null) {
+                child.cancel(reason);
+            }
+        }
+        if (hasDeadline && deadline != this.deadline) {
+            TimerWheel wheel = Timers.wheel();
+            Expiry expiry = new Expiry(child, wheel.deadline(deadline - System.nanoTime()));
+            child.expiry = expiry;
+            wheel.schedule(expiry);
+            if (child.reason != null) {
+                expiry.context = null; // cancelled before the expiry was set, so cancel didn't see it
+            }
+        }
+        return child;
+    }
+
+    private void cancel(String reason) {
+        if (this == BACKGROUND) {
+            return;
+        }
+        synchronized (this) {
+            if (this.reason != null) {
+                return;
+            }
+            this.reason = reason;
+            if (done != null) {
+                done.close();
+            }
+        }
+        Expiry expiry = this.expiry;
+        if (expiry != null) {
+            expiry.context = null; // left on the wheel until due, but no longer holding this context
+        }
+        for (Waiter waiter : waiters) {
+            if (waiter.cancel()) {
+                waiter.unpark();
+            }
+        }
+        for (Context child : children) {
+            child.cancel(reason);
+        }
+        if (parent != null) {
+            parent.children.remove(this);
+        }
+    }
+
+    /**
+     * Cancels the context once its deadline has passed, unless the context has been cancelled first, which drops the
+     * reference to it so the wheel doesn't keep the context (and its children) alive until the deadline
+     */
+    private static final class Expiry extends TimerWheel.Entry {
+
+        private volatile Context context;
+
+        Expiry(Context context, long deadline) {
+            this.context = context;
+            this.deadline = deadline;
+        }
+
+        @Override
+        long expire(long tick) {
+            Context context = this.context;
+            if (context != null) {
+                context.cancel("Context deadline exceeded");
+            }
+            return -1;
+        }
+    }
+}
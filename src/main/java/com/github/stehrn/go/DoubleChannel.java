@@ -0,0 +1,99 @@
+package com.github.stehrn.go;
+
+/**
+ * A buffered channel of {@code double} values, sent and received without boxing; values are held in a primitive
+ * array.
+ * <p>
+ * Behaves the same as a buffered {@code Channel}, including when closed. As there is no null to signal a closed
+ * channel, {@code receiveDouble()} returns {@code 0.0} once closed; use {@code result(DoubleResult)} with a reusable
+ * result to tell a closed channel apart from a real {@code 0.0} without allocating:
+ * <pre> {@code
+ * DoubleChannel values = doubleChannel(10);
+ * DoubleResult result = new DoubleResult();
+ * while (!values.result(result).isClosed()) {
+ *     process(result.result());
+ * }
+ * }</pre>
+ */
+public final class DoubleChannel extends PrimitiveChannel {
+
+    private DoubleChannel(int size) {
+        super(size);
+    }
+
+    /**
+     * Create a buffered channel of {@code double} values
+     *
+     * @param size capacity of buffer
+     * @return A channel that is buffered
+     */
+    public static DoubleChannel doubleChannel(int size) {
+        return new DoubleChannel(size);
+    }
+
+    /**
+     * Send a value into the channel
+     *
+     * @param value value to send into channel
+     */
+    public void send(double value) {
+        sendBits(Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * Receive a value from the channel
+     *
+     * @return value from channel, or {@code 0.0} if the channel is closed
+     */
+    public double receiveDouble() {
+        long pos = claim();
+        if (pos < 0) {
+            return 0.0;
+        }
+        return Double.longBitsToDouble(receiveBits(pos));
+    }
+
+    /**
+     * Returns channel result from channel
+     *
+     * @return channel result from channel
+     */
+    public DoubleResult result() {
+        return result(new DoubleResult());
+    }
+
+    /**
+     * Receive a value from the channel into the given result, so a single result can be reused for every value
+     *
+     * @param result result to update
+     * @return the given result
+     */
+    public DoubleResult result(DoubleResult result) {
+        long pos = claim();
+        if (pos < 0) {
+            result.set(0.0, true);
+        } else {
+            result.set(Double.longBitsToDouble(receiveBits(pos)), false);
+        }
+        return result;
+    }
+
+    public static class DoubleResult {
+
+        private double result;
+        private boolean isClosed;
+
+        public double result() {
+            return result;
+        }
+
+        public boolean isClosed() {
+            return isClosed;
+        }
+
+        void set(double result, boolean isClosed) {
+            this.result = result;
+            this.isClosed = isClosed;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.github.stehrn.go;
+
+/**
+ * A buffered channel of {@code int} values, sent and received without boxing; values are held in a primitive array.
+ * <p>
+ * Behaves the same as a buffered {@code Channel}, including when closed. As there is no null to signal a closed
+ * channel, {@code receiveInt()} returns {@code 0} once closed; use {@code result(IntResult)} with a reusable
+ * result to tell a closed channel apart from a real {@code 0} without allocating:
+ * <pre> {@code
+ * IntChannel values = intChannel(10);
+ * IntResult result = new IntResult();
+ * while (!values.result(result).isClosed()) {
+ *     process(result.result());
+ * }
+ * }</pre>
+ */
+public final class IntChannel extends PrimitiveChannel {
+
+    private IntChannel(int size) {
+        super(size);
+    }
+
+    /**
+     * Create a buffered channel of {@code int} values
+     *
+     * @param size capacity of buffer
+     * @return A channel that is buffered
+     */
+    public static IntChannel intChannel(int size) {
+        return new IntChannel(size);
+    }
+
+    /**
+     * Send a value into the channel
+     *
+     * @param value value to send into channel
+     */
+    public void send(int value) {
+        sendBits(value);
+    }
+
+    /**
+     * Receive a value from the channel
+     *
+     * @return value from channel, or {@code 0} if the channel is closed
+     */
+    public int receiveInt() {
+        long pos = claim();
+        if (pos < 0) {
+            return 0;
+        }
+        return (int) receiveBits(pos);
+    }
+
+    /**
+     * Returns channel result from channel
+     *
+     * @return channel result from channel
+     */
+    public IntResult result() {
+        return result(new IntResult());
+    }
+
+    /**
+     * Receive a value from the channel into the given result, so a single result can be reused for every value
+     *
+     * @param result result to update
+     * @return the given result
+     */
+    public IntResult result(IntResult result) {
+        long pos = claim();
+        if (pos < 0) {
+            result.set(0, true);
+        } else {
+            result.set((int) receiveBits(pos), false);
+        }
+        return result;
+    }
+
+    public static class IntResult {
+
+        private int result;
+        private boolean isClosed;
+
+        public int result() {
+            return result;
+        }
+
+        public boolean isClosed() {
+            return isClosed;
+        }
+
+        void set(int result, boolean isClosed) {
+            this.result = result;
+            this.isClosed = isClosed;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.github.stehrn.go;
+
+/**
+ * A buffered channel of {@code long} values, sent and received without boxing; values are held in a primitive array.
+ * <p>
+ * Behaves the same as a buffered {@code Channel}, including when closed. As there is no null to signal a closed
+ * channel, {@code receiveLong()} returns {@code 0L} once closed; use {@code result(LongResult)} with a reusable
+ * result to tell a closed channel apart from a real {@code 0L} without allocating:
+ * <pre> {@code
+ * LongChannel values = longChannel(10);
+ * LongResult result = new LongResult();
+ * while (!values.result(result).isClosed()) {
+ *     process(result.result());
+ * }
+ * }</pre>
+ */
+public final class LongChannel extends PrimitiveChannel {
+
+    private LongChannel(int size) {
+        super(size);
+    }
+
+    /**
+     * Create a buffered channel of {@code long} values
+     *
+     * @param size capacity of buffer
+     * @return A channel that is buffered
+     */
+    public static LongChannel longChannel(int size) {
+        return new LongChannel(size);
+    }
+
+    /**
+     * Send a value into the channel
+     *
+     * @param value value to send into channel
+     */
+    public void send(long value) {
+        sendBits(value);
+    }
+
+    /**
+     * Receive a value from the channel
+     *
+     * @return value from channel, or {@code 0L} if the channel is closed
+     */
+    public long receiveLong() {
+        long pos = claim();
+        if (pos < 0) {
+            return 0L;
+        }
+        return receiveBits(pos);
+    }
+
+    /**
+     * Returns channel result from channel
+     *
+     * @return channel result from channel
+     */
+    public LongResult result() {
+        return result(new LongResult());
+    }
+
+    /**
+     * Receive a value from the channel into the given result, so a single result can be reused for every value
+     *
+     * @param result result to update
+     * @return the given result
+     */
+    public LongResult result(LongResult result) {
+        long pos = claim();
+        if (pos < 0) {
+            result.set(0L, true);
+        } else {
+            result.set(receiveBits(pos), false);
+        }
+        return result;
+    }
+
+    public static class LongResult {
+
+        private long result;
+        private boolean isClosed;
+
+        public long result() {
+            return result;
+        }
+
+        public boolean isClosed() {
+            return isClosed;
+        }
+
+        void set(long result, boolean isClosed) {
+            this.result = result;
+            this.isClosed = isClosed;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.github.stehrn.go;
+
+/**
+ * Lock-free bounded ring of primitive {@code long} values for many producers and many consumers, the primitive
+ * counterpart of {@code MpmcArrayBuffer}; positions and slot sequences are managed by {@code MpmcRing}.
+ * <p>
+ * As there is no null to mean empty, a consumer takes a value in two steps: {@link #claim()} a position, then
+ * {@link #consume(long)} the value at it, which hands the slot back to producers.
+ */
+final class LongRing extends MpmcRing {
+
+    private final long[] values;
+
+    LongRing(int capacity) {
+        super(capacity);
+        this.values = new long[slots()];
+    }
+
+    boolean offer(long value) {
+        long pos = claimSlot();
+        if (pos < 0) {
+            return false;
+        }
+        values[index(pos)] = value;
+        filled(pos);
+        return true;
+    }
+
+    /**
+     * @return position of a value now owned by the caller, or -1 if ring is empty
+     */
+    long claim() {
+        return claimValue();
+    }
+
+    /**
+     * @param pos position returned by {@link #claim()}
+     * @return value at position
+     */
+    long consume(long pos) {
+        long value = values[index(pos)];
+        emptied(pos);
+        return value;
+    }
+}
@@ -0,0 +1,104 @@
+package com.github.stehrn.go;
+
+/**
+ * Lock-free bounded buffer supporting many producers and many consumers (Dmitry Vyukov's bounded MPMC queue), see
+ * {@code MpmcRing} for how positions and slot sequence numbers work.
+ */
+final class MpmcArrayBuffer<E> extends MpmcRing implements Buffer<E> {
+
+    private final Object[] elements;
+
+    MpmcArrayBuffer(int capacity) {
+        super(capacity);
+        this.elements = new Object[slots()];
+    }
+
+    @Override
+    public boolean offer(E value) {
+        long pos = claimSlot();
+        if (pos < 0) {
+            return false;
+        }
+        elements[index(pos)] = value;
+        filled(pos);
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long pos = claimValue();
+        if (pos < 0) {
+            return null;
+        }
+        int index = index(pos);
+        E value = (E) elements[index];
+        elements[index] = null;
+        emptied(pos);
+        return value;
+    }
+
+    /**
+     * Claims the longest run of free slots from {@code tail} with a single CAS; the run is checked before the CAS, and
+     * a free slot can only be taken by a producer that has moved {@code tail}, so if the CAS succeeds every slot in the
+     * run is still free
+     */
+    @Override
+    public int offer(Object[] values, int from, int to) {
+        for (;;) {
+            long pos = tail.get();
+            long limit = producerLimit;
+            if (pos + (to - from) > limit) {
+                limit = head.get() + capacity;
+                producerLimit = limit;
+            }
+            int max = (int) Math.min(to - from, limit - pos);
+            int n = 0;
+            while (n < max && sequences.get(index(pos + n)) == pos + n) {
+                n++;
+            }
+            if (n == 0) {
+                if (max <= 0 || sequences.get(index(pos)) < pos) {
+                    return 0;
+                }
+                continue; // another producer moved tail
+            }
+            if (tail.compareAndSet(pos, pos + n)) {
+                for (int i = 0; i < n; i++) {
+                    elements[index(pos + i)] = values[from + i];
+                    filled(pos + i);
+                }
+                return n;
+            }
+        }
+    }
+
+    /**
+     * Claims the longest run of filled slots from {@code head} with a single CAS, see {@link #offer(Object[], int, int)}
+     */
+    @Override
+    public int poll(Object[] into, int offset, int max) {
+        for (;;) {
+            long pos = head.get();
+            int n = 0;
+            while (n < max && sequences.get(index(pos + n)) == pos + n + 1) {
+                n++;
+            }
+            if (n == 0) {
+                if (max <= 0 || sequences.get(index(pos)) < pos + 1) {
+                    return 0;
+                }
+                continue; // another consumer moved head
+            }
+            if (head.compareAndSet(pos, pos + n)) {
+                for (int i = 0; i < n; i++) {
+                    int index = index(pos + i);
+                    into[offset + i] = Channel.unmask(elements[index]);
+                    elements[index] = null;
+                    emptied(pos + i);
+                }
+                return n;
+            }
+        }
+    }
+}
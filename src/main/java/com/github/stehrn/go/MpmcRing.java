@@ -0,0 +1,124 @@
+package com.github.stehrn.go;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Positions and slot sequence numbers of a lock-free bounded ring for many producers and many consumers (Dmitry
+ * Vyukov's bounded MPMC queue), shared by the rings that hold the values themselves ({@code MpmcArrayBuffer} for
+ * references, {@code LongRing} for primitives).
+ * <p>
+ * Every slot has a sequence number saying which lap of the ring it is ready for: a producer at position {@code pos}
+ * may fill a slot whose sequence is {@code pos}, after which the sequence becomes {@code pos + 1} and a consumer at
+ * {@code pos} may empty it, setting the sequence to {@code pos + slots} ready for the next lap. Producers and
+ * consumers claim positions with a single CAS on the padded {@code tail} and {@code head} counters respectively, so
+ * they only contend with their own side.
+ * <p>
+ * The ring is sized to a power of two, so indexing is a mask; when the requested capacity is smaller than the ring,
+ * producers also check against a cached limit derived from {@code head}.
+ * <p>
+ * A subclass fills the slot at a position returned by {@link #claimSlot()} then calls {@link #filled(long)}, and
+ * empties the slot at a position returned by {@link #claimValue()} then calls {@link #emptied(long)}.
+ */
+abstract class MpmcRing implements Occupancy {
+
+    final PaddedAtomicLong head = new PaddedAtomicLong(0);
+    final PaddedAtomicLong tail = new PaddedAtomicLong(0);
+    final AtomicLongArray sequences;
+    final int mask;
+    final int capacity;
+    volatile long producerLimit; // racy cache of head + capacity, a stale value just means re-reading head
+
+    MpmcRing(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        int slots = 1 << (32 - Integer.numberOfLeadingZeros(capacity - 1));
+        this.capacity = capacity;
+        this.mask = slots - 1;
+        this.sequences = new AtomicLongArray(slots);
+        for (int i = 0; i < slots; i++) {
+            sequences.lazySet(i, i);
+        }
+        this.producerLimit = capacity;
+    }
+
+    /**
+     * @return number of slots in the ring, a power of two at least the capacity
+     */
+    final int slots() {
+        return mask + 1;
+    }
+
+    final int index(long pos) {
+        return (int) pos & mask;
+    }
+
+    /**
+     * @return position of a free slot now owned by the caller, or -1 if ring is full
+     */
+    final long claimSlot() {
+        long pos = tail.get();
+        for (;;) {
+            long dif = sequences.get(index(pos)) - pos;
+            if (dif == 0) {
+                if (pos >= producerLimit) {
+                    long limit = head.get() + capacity;
+                    producerLimit = limit;
+                    if (pos >= limit) {
+                        return -1;
+                    }
+                }
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    return pos;
+                }
+            } else if (dif < 0) {
+                return -1;
+            }
+            pos = tail.get();
+        }
+    }
+
+    /**
+     * Hand the slot at a position from {@link #claimSlot()}, now filled, to consumers
+     */
+    final void filled(long pos) {
+        sequences.lazySet(index(pos), pos + 1);
+    }
+
+    /**
+     * @return position of a value now owned by the caller, or -1 if ring is empty
+     */
+    final long claimValue() {
+        long pos = head.get();
+        for (;;) {
+            long dif = sequences.get(index(pos)) - (pos + 1);
+            if (dif == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    return pos;
+                }
+            } else if (dif < 0) {
+                return -1;
+            }
+            pos = head.get();
+        }
+    }
+
+    /**
+     * Hand the slot at a position from {@link #claimValue()}, now emptied, back to producers for the next lap
+     */
+    final void emptied(long pos) {
+        sequences.lazySet(index(pos), pos + mask + 1);
+    }
+
+    @Override
+    public final boolean isEmpty() {
+        long h = head.get();
+        return tail.get() == h;
+    }
+
+    @Override
+    public final boolean isFull() {
+        long h = head.get();
+        return tail.get() - h >= capacity;
+    }
+}
@@ -0,0 +1,113 @@
+package com.github.stehrn.go;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free bounded buffer for many producers and a single consumer.
+ * <p>
+ * Producers claim a position with one CAS on {@code tail} (checked against a cached limit derived from {@code head})
+ * and then publish the value with an ordered write to its slot. The consumer owns {@code head}, so it never needs a
+ * CAS: it reads the slot at {@code head}, clears it and publishes the new {@code head}. A null slot behind a claimed
+ * position just means the producer that claimed it has not finished writing yet.
+ */
+final class MpscArrayBuffer<E> implements Buffer<E> {
+
+    private final PaddedAtomicLong head = new PaddedAtomicLong(0);
+    private final PaddedAtomicLong tail = new PaddedAtomicLong(0);
+    private final AtomicReferenceArray<E> elements;
+    private final int mask;
+    private final int capacity;
+    private volatile long producerLimit;
+
+    MpscArrayBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        int slots = 1 << (32 - Integer.numberOfLeadingZeros(capacity - 1));
+        this.capacity = capacity;
+        this.mask = slots - 1;
+        this.elements = new AtomicReferenceArray<>(slots);
+        this.producerLimit = capacity;
+    }
+
+    @Override
+    public boolean offer(E value) {
+        long limit = producerLimit;
+        long pos;
+        do {
+            pos = tail.get();
+            if (pos >= limit) {
+                limit = head.get() + capacity;
+                if (pos >= limit) {
+                    return false;
+                }
+                producerLimit = limit;
+            }
+        } while (!tail.compareAndSet(pos, pos + 1));
+        elements.lazySet((int) pos & mask, value);
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        long h = head.get();
+        int index = (int) h & mask;
+        E value = elements.get(index);
+        if (value == null) {
+            return null;
+        }
+        elements.lazySet(index, null);
+        head.set(h + 1);
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public int offer(Object[] values, int from, int to) {
+        long limit = producerLimit;
+        long pos;
+        int n;
+        do {
+            pos = tail.get();
+            if (pos + (to - from) > limit) {
+                limit = head.get() + capacity;
+                producerLimit = limit;
+            }
+            n = (int) Math.min(to - from, limit - pos);
+            if (n <= 0) {
+                return 0;
+            }
+        } while (!tail.compareAndSet(pos, pos + n));
+        for (int i = 0; i < n; i++) {
+            elements.lazySet((int) (pos + i) & mask, (E) values[from + i]);
+        }
+        return n;
+    }
+
+    @Override
+    public int poll(Object[] into, int offset, int max) {
+        long h = head.get();
+        int n = 0;
+        E value;
+        while (n < max && (value = elements.get((int) (h + n) & mask)) != null) {
+            elements.lazySet((int) (h + n) & mask, null);
+            into[offset + n++] = Channel.unmask(value);
+        }
+        if (n > 0) {
+            head.set(h + n);
+        }
+        return n;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        long h = head.get();
+        return tail.get() == h;
+    }
+
+    @Override
+    public boolean isFull() {
+        long h = head.get();
+        return tail.get() - h >= capacity;
+    }
+}
@@ -0,0 +1,15 @@
+package com.github.stehrn.go;
+
+/**
+ * Whether the store behind a buffered channel is empty or full.
+ * <p>
+ * The channel parks routines itself, so implementations must account for any insert or remove that has been claimed
+ * but not yet completed, with the claim published by a volatile write (or CAS); that way a routine that registers
+ * itself as waiting, and then checks occupancy, can never miss an operation that failed to see it waiting.
+ */
+interface Occupancy {
+
+    boolean isEmpty();
+
+    boolean isFull();
+}
@@ -0,0 +1,17 @@
+package com.github.stehrn.go;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An {@code AtomicLong} padded out to a cache line, so counters updated by different routines (e.g. the head and
+ * tail of a ring buffer) don't end up sharing one and invalidating each other.
+ */
+@SuppressWarnings("unused")
+final class PaddedAtomicLong extends AtomicLong {
+
+    private long p1, p2, p3, p4, p5, p6, p7;
+
+    PaddedAtomicLong(long initialValue) {
+        super(initialValue);
+    }
+}
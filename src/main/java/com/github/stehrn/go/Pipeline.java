@@ -0,0 +1,442 @@
+package com.github.stehrn.go;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static com.github.stehrn.go.Channel.channel;
+import static com.github.stehrn.go.ChannelOptions.options;
+
+/**
+ * Pipeline of stages connected by channels, each stage run by one or more routines:
+ * <pre> {@code
+ * from(lines)
+ *     .map(Parser::parse, 4).buffer(64)
+ *     .filter(Record::isValid)
+ *     .ordered()
+ *     .to(records);
+ * }</pre>
+ * A pipeline is only a description until {@link #to(Channel)} is called, which creates a channel between each pair of
+ * stages and starts the stage routines. Each stage receives from the channel before it until that channel is closed,
+ * and once every routine of the stage has finished the channel after it is closed, so closing the source channel
+ * shuts the whole pipeline down in order, ending with the sink being closed.
+ * <p>
+ * Stage routines share their input channel, so with a parallelism above one values can come out of a stage in a
+ * different order than they went in, unless the pipeline is {@link #ordered()}; an ordered stage deals values out
+ * round robin to a channel per routine, and collects results back round robin, so order is kept at the cost of a
+ * dispatching and a collecting routine.
+ * <p>
+ * Adjacent stages with the same parallelism are fused into one when the pipeline is started, their functions run one
+ * after the other by the same routines, so a cheap stage doesn't cost a channel hop; set a {@link #buffer(int)} on a
+ * stage to keep a channel after it regardless.
+ * <p>
+ * A stage whose function throws fails the whole pipeline: every channel of the pipeline, from the source to the sink,
+ * is closed, so the other stage routines stop. As for any closed channel, a routine already blocked sending to the
+ * source is woken and returns, its value dropped, and a send to the source started after the close throws a
+ * {@code ChannelException}. {@link Execution#join()} throws the failure once every stage routine has finished.
+ */
+public final class Pipeline<T> {
+
+    /**
+     * Marks the end of the results for one value, sent by the routines of an ordered stage
+     */
+    private static final Object END = new Object();
+
+    private final Channel<?> source;
+    private final List<Stage> stages;
+    private final boolean ordered;
+
+    private Pipeline(Channel<?> source, List<Stage> stages, boolean ordered) {
+        this.source = source;
+        this.stages = stages;
+        this.ordered = ordered;
+    }
+
+    /**
+     * @param source channel the first stage receives from
+     */
+    public static <T> Pipeline<T> from(Channel<T> source) {
+        return new Pipeline<>(source, Collections.emptyList(), false);
+    }
+
+    public <R> Pipeline<R> map(Function<? super T, ? extends R> mapper) {
+        return map(mapper, 1);
+    }
+
+    /**
+     * Add a stage sending on the result of the function for every value
+     *
+     * @param parallelism number of routines running the stage
+     */
+    @SuppressWarnings("unchecked")
+    public <R> Pipeline<R> map(Function<? super T, ? extends R> mapper, int parallelism) {
+        return add(downstream -> value -> downstream.accept(mapper.apply((T) value)), parallelism);
+    }
+
+    public Pipeline<T> filter(Predicate<? super T> predicate) {
+        return filter(predicate, 1);
+    }
+
+    /**
+     * Add a stage sending on only the values that match the predicate
+     *
+     * @param parallelism number of routines running the stage
+     */
+    @SuppressWarnings("unchecked")
+    public Pipeline<T> filter(Predicate<? super T> predicate, int parallelism) {
+        return add(downstream -> value -> {
+            if (predicate.test((T) value)) {
+                downstream.accept(value);
+            }
+        }, parallelism);
+    }
+
+    public <R> Pipeline<R> flatMap(Function<? super T, ? extends Iterable<? extends R>> mapper) {
+        return flatMap(mapper, 1);
+    }
+
+    /**
+     * Add a stage sending on every value the function returns for every value
+     *
+     * @param parallelism number of routines running the stage
+     */
+    @SuppressWarnings("unchecked")
+    public <R> Pipeline<R> flatMap(Function<? super T, ? extends Iterable<? extends R>> mapper, int parallelism) {
+        return add(downstream -> value -> mapper.apply((T) value).forEach(downstream), parallelism);
+    }
+
+    /**
+     * Set the buffer size of the channel the last stage sends to (unbuffered by default); ignored for the last stage of
+     * the pipeline, which sends to the sink. Setting a buffer size (even 0) also keeps the stage from being fused with
+     * the next one.
+     */
+    public Pipeline<T> buffer(int size) {
+        if (stages.isEmpty()) {
+            throw new IllegalStateException("Pipeline has no stages");
+        }
+        if (size < 0) {
+            throw new IllegalArgumentException("Size must not be negative: " + size);
+        }
+        List<Stage> copy = new ArrayList<>(stages);
+        Stage last = copy.get(copy.size() - 1);
+        copy.set(copy.size() - 1, new Stage(last.step, last.parallelism, size));
+        return new Pipeline<>(source, copy, ordered);
+    }
+
+    /**
+     * Keep values in the order they were received from the source, whatever the parallelism of each stage
+     */
+    public Pipeline<T> ordered() {
+        return new Pipeline<>(source, stages, true);
+    }
+
+    /**
+     * Start the pipeline, the last stage sends to the sink, which is closed once the pipeline has finished
+     *
+     * @param sink channel the last stage sends to
+     * @return execution to wait for the pipeline to finish, and find out whether a stage failed
+     */
+    @SuppressWarnings("unchecked")
+    public Execution to(Channel<T> sink) {
+        Execution execution = new Execution();
+        List<Stage> stages = fuse(this.stages);
+        Channel<Object> input = execution.register((Channel<Object>) source);
+        for (int i = 0; i < stages.size(); i++) {
+            Stage stage = stages.get(i);
+            Channel<Object> output = execution.register(i == stages.size() - 1
+                    ? (Channel<Object>) sink : channel(options().size(Math.max(0, stage.buffer))));
+            if (ordered && stage.parallelism > 1) {
+                startOrdered(execution, stage, input, output);
+            } else {
+                start(execution, stage, input, output);
+            }
+            input = output;
+        }
+        if (stages.isEmpty()) {
+            start(execution, new Stage(downstream -> downstream, 1, Stage.UNSET), input,
+                    execution.register((Channel<Object>) sink));
+        }
+        return execution;
+    }
+
+    private <R> Pipeline<R> add(Step step, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        List<Stage> copy = new ArrayList<>(stages);
+        copy.add(new Stage(step, parallelism, Stage.UNSET));
+        return new Pipeline<>(source, copy, ordered);
+    }
+
+    /**
+     * Start the stage routines, all receiving from the input; the last routine to finish closes the output
+     */
+    private static void start(Execution execution, Stage stage, Channel<Object> input, Channel<Object> output) {
+        AtomicInteger running = new AtomicInteger(stage.parallelism);
+        for (int i = 0; i < stage.parallelism; i++) {
+            execution.go(() -> {
+                try {
+                    Consumer<Object> step = stage.step.bind(output::send);
+                    for (Object value : input) {
+                        step.accept(value);
+                    }
+                } finally {
+                    if (running.decrementAndGet() == 0) {
+                        close(output);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Start the stage routines each with a channel of its own, a dispatching routine dealing values out to them in
+     * turn, and a collecting routine taking the results for each value back in the same turn
+     */
+    private static void startOrdered(Execution execution, Stage stage, Channel<Object> input, Channel<Object> output) {
+        int n = stage.parallelism;
+        List<Channel<Object>> ins = new ArrayList<>(n);
+        List<Channel<Object>> outs = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Channel<Object> in = execution.register(Channel.spsc(Math.max(1, stage.buffer)));
+            Channel<Object> out = execution.register(Channel.spsc(Math.max(1, stage.buffer)));
+            ins.add(in);
+            outs.add(out);
+            execution.go(() -> {
+                try {
+                    Consumer<Object> step = stage.step.bind(out::send);
+                    for (Object value : in) {
+                        step.accept(value);
+                        out.send(END);
+                    }
+                } finally {
+                    close(out);
+                }
+            });
+        }
+        execution.go(() -> {
+            try {
+                int i = 0;
+                for (Object value : input) {
+                    ins.get(i).send(value);
+                    i = (i + 1) % n;
+                }
+            } finally {
+                ins.forEach(Pipeline::close);
+            }
+        });
+        execution.go(() -> {
+            try {
+                Channel.ChannelResult<Object> result = new Channel.ChannelResult<>();
+                for (int i = 0; ; i = (i + 1) % n) {
+                    Channel<Object> out = outs.get(i);
+                    while (!out.result(result).isClosed()) {
+                        if (result.result() == END) {
+                            break;
+                        }
+                        output.send(result.result());
+                    }
+                    if (result.isClosed()) {
+                        return;
+                    }
+                }
+            } finally {
+                close(output);
+            }
+        });
+    }
+
+    /**
+     * Close the channel unless it has already been closed, by the pipeline failing or being cancelled
+     */
+    private static void close(Channel<?> channel) {
+        if (!channel.closed) {
+            try {
+                channel.close();
+            } catch (ChannelException e) {
+                // closed concurrently
+            }
+        }
+    }
+
+    /**
+     * @return number of stages that will be started once adjacent stages have been fused
+     */
+    int fusedStages() {
+        return fuse(stages).size();
+    }
+
+    /**
+     * Fuse each run of adjacent stages with the same parallelism into a single stage, whose routines pass every value
+     * straight through the functions of the run, rather than through a channel between each (a handoff, a wake-up and
+     * the value going cold in cache on every hop). Channels are only kept where the parallelism changes, or where a
+     * buffer has been set, i.e. where the stages really need to run concurrently. Every stage is stateless, so fusing
+     * doesn't change what the pipeline does.
+     */
+    private static List<Stage> fuse(List<Stage> stages) {
+        List<Stage> fused = new ArrayList<>(stages.size());
+        for (Stage stage : stages) {
+            int last = fused.size() - 1;
+            if (last >= 0 && fused.get(last).buffer == Stage.UNSET
+                    && fused.get(last).parallelism == stage.parallelism) {
+                Stage previous = fused.get(last);
+                fused.set(last, new Stage(previous.step.then(stage.step), stage.parallelism, stage.buffer));
+            } else {
+                fused.add(stage);
+            }
+        }
+        return fused;
+    }
+
+    /**
+     * A started pipeline, to wait for it to finish or cancel it:
+     * <pre> {@code
+     * Pipeline.Execution execution = from(lines).map(Parser::parse, 4).to(records);
+     * records.forEach(store::save);
+     * execution.join(); // throws if a stage failed
+     * }</pre>
+     * Every routine of the pipeline is counted in a {@code WaitGroup}; the first to fail records its failure and closes
+     * every channel of the pipeline, so the rest stop too.
+     */
+    public static final class Execution {
+
+        private static final AtomicReferenceFieldUpdater<Execution, Throwable> FAILURE =
+                AtomicReferenceFieldUpdater.newUpdater(Execution.class, Throwable.class, "failure");
+
+        private final Queue<Channel<?>> channels = new ConcurrentLinkedQueue<>();
+        private final WaitGroup routines = new WaitGroup();
+        private volatile Throwable failure;
+
+        private Execution() {
+        }
+
+        /**
+         * Wait for every routine of the pipeline to finish
+         *
+         * @throws CancellationException if the pipeline was cancelled
+         * @throws RoutineException      wrapping a checked exception thrown by a stage, any unchecked exception or
+         *                               error is rethrown as is
+         */
+        public void join() {
+            routines.await();
+            report();
+        }
+
+        /**
+         * Wait at most the given timeout for every routine of the pipeline to finish
+         *
+         * @return true if the pipeline finished
+         * @throws CancellationException as for {@link #join()}
+         * @throws RoutineException      as for {@link #join()}
+         */
+        public boolean join(long timeout, TimeUnit unit) {
+            if (!routines.await(timeout, unit)) {
+                return false;
+            }
+            report();
+            return true;
+        }
+
+        public boolean isDone() {
+            return routines.count() == 0;
+        }
+
+        /**
+         * Cancel the pipeline, closing every channel of it from the source to the sink
+         *
+         * @return false if the pipeline had already finished, failed or been cancelled
+         */
+        public boolean cancel() {
+            return !isDone() && fail(new CancellationException("Pipeline cancelled"));
+        }
+
+        <C extends Channel<?>> C register(C channel) {
+            channels.add(channel);
+            if (failure != null) {
+                close(channel); // failed before the channel was registered
+            }
+            return channel;
+        }
+
+        void go(Runnable routine) {
+            routines.add(1);
+            Routine.go(() -> {
+                try {
+                    routine.run();
+                } catch (Throwable t) {
+                    fail(t);
+                } finally {
+                    routines.done();
+                }
+            });
+        }
+
+        /**
+         * Record the first failure and close every channel; later failures, mostly routines finding a channel closed
+         * under them, are ignored
+         */
+        private boolean fail(Throwable t) {
+            if (!FAILURE.compareAndSet(this, null, t)) {
+                return false;
+            }
+            channels.forEach(Pipeline::close);
+            return true;
+        }
+
+        private void report() {
+            Throwable failure = this.failure;
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            if (failure != null) {
+                throw new RoutineException("Pipeline failed: " + failure, failure);
+            }
+        }
+    }
+
+    /**
+     * What a stage does with each value it receives, passing on zero or more values downstream
+     */
+    private interface Step {
+
+        /**
+         * @param downstream consumer of the values passed on
+         * @return consumer of the values received, bound once per routine so nothing is allocated per value
+         */
+        Consumer<Object> bind(Consumer<Object> downstream);
+
+        default Step then(Step next) {
+            return downstream -> bind(next.bind(downstream));
+        }
+    }
+
+    private static final class Stage {
+
+        /**
+         * Buffer size not set, the stage sends to an unbuffered channel and may be fused with the next stage
+         */
+        static final int UNSET = -1;
+
+        final Step step;
+        final int parallelism;
+        final int buffer;
+
+        Stage(Step step, int parallelism, int buffer) {
+            this.step = step;
+            this.parallelism = parallelism;
+            this.buffer = buffer;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.github.stehrn.go;
+
+/**
+ * Buffered channel of primitive values, each value is carried as the 64 bits of a {@code long} in a {@code LongRing},
+ * so nothing is boxed on the way through.
+ */
+abstract class PrimitiveChannel extends AbstractChannel {
+
+    private final LongRing ring;
+
+    PrimitiveChannel(int size) {
+        this.ring = new LongRing(size);
+    }
+
+    void sendBits(long bits) {
+        if (closed) {
+            throw closedException();
+        }
+        while (!ring.offer(bits)) {
+            if (!awaitSpace(ring, Waiter.FOREVER)) {
+                return;
+            }
+        }
+        signal(receivers);
+    }
+
+    /**
+     * Block until a value is available, the caller must then pass the returned position to {@link #receiveBits(long)};
+     * values buffered when the channel is closed can still be received
+     *
+     * @return position of value, or -1 if channel is closed and empty
+     */
+    long claim() {
+        long pos;
+        while ((pos = ring.claim()) < 0) {
+            if (closed) {
+                if (ring.isEmpty()) {
+                    return -1;
+                }
+                Thread.yield(); // a claimed slot is still being filled
+            } else {
+                awaitValue(ring, Waiter.FOREVER);
+            }
+        }
+        return pos;
+    }
+
+    long receiveBits(long pos) {
+        long bits = ring.consume(pos);
+        signal(senders);
+        return bits;
+    }
+}
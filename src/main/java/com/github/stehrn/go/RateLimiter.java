@@ -0,0 +1,235 @@
+package com.github.stehrn.go;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * Hands out permits at a steady rate, allowing short bursts, to pace routines sending to a downstream system:
+ * <pre> {@code
+ * RateLimiter limiter = RateLimiter.create(100_000, 100);
+ * limiter.acquire();
+ * }</pre>
+ * or to pace every send on a channel, see {@code ChannelOptions.rateLimiter}.
+ * <p>
+ * The limiter is a token bucket, implemented as the generic cell rate algorithm (GCRA): its only state is the
+ * theoretical arrival time, the time at which the bucket would be full again, which each acquire moves on by one
+ * interval per permit with a single CAS, provided that leaves it no more than {@code burst} intervals ahead of now.
+ * Nothing refills the bucket, and no lock or thread is involved. Because the schedule is absolute, a routine that
+ * wakes late from a wait doesn't slow the rate down, the next routine simply has less (or no) time to wait.
+ * <p>
+ * A routine that has to wait for its permits reserves them first, then parks until they are due, so waiting routines
+ * are served in the order they arrived; see {@link #reserve(int)} to reserve permits without waiting.
+ */
+public final class RateLimiter {
+
+    private static final AtomicLongFieldUpdater<RateLimiter> ARRIVAL =
+            AtomicLongFieldUpdater.newUpdater(RateLimiter.class, "arrival");
+
+    private final long interval;
+    private final long tolerance;
+    private final int burst;
+    private volatile long arrival = System.nanoTime();
+
+    private RateLimiter(double permitsPerSecond, int burst) {
+        if (!(permitsPerSecond > 0)) {
+            throw new IllegalArgumentException("Rate must be positive: " + permitsPerSecond);
+        }
+        if (burst < 1) {
+            throw new IllegalArgumentException("Burst must be positive: " + burst);
+        }
+        this.interval = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.tolerance = interval * burst;
+        this.burst = burst;
+    }
+
+    /**
+     * @param permitsPerSecond steady rate permits are handed out at
+     */
+    public static RateLimiter create(double permitsPerSecond) {
+        return new RateLimiter(permitsPerSecond, 1);
+    }
+
+    /**
+     * @param permitsPerSecond steady rate permits are handed out at
+     * @param burst            most permits that can be acquired at once, after the limiter has been idle
+     */
+    public static RateLimiter create(double permitsPerSecond, int burst) {
+        return new RateLimiter(permitsPerSecond, burst);
+    }
+
+    /**
+     * Acquire a permit, waiting until it is due
+     *
+     * @throws RoutineException if interrupted whilst waiting
+     */
+    public void acquire() {
+        acquire(1);
+    }
+
+    /**
+     * Acquire the given number of permits, waiting until they are due
+     *
+     * @throws RoutineException if interrupted whilst waiting
+     */
+    public void acquire(int permits) {
+        try {
+            acquire(permits, Waiter.FOREVER);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RoutineException("Rate limiter wait interrupted", e);
+        }
+    }
+
+    public boolean tryAcquire() {
+        return tryAcquire(1);
+    }
+
+    /**
+     * Acquire the given number of permits only if they are due now
+     *
+     * @return true if acquired, always false for more permits than the burst
+     */
+    public boolean tryAcquire(int permits) {
+        long cost = cost(permits);
+        for (;;) {
+            long now = System.nanoTime();
+            long arrival = this.arrival;
+            long next = Math.max(arrival, now) + cost;
+            if (next - now > tolerance) {
+                return false;
+            }
+            if (ARRIVAL.compareAndSet(this, arrival, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Acquire the given number of permits, waiting only if they will be due within the timeout
+     *
+     * @return true if acquired, false (without waiting at all) if they won't be due in time
+     * @throws RoutineException if interrupted whilst waiting
+     */
+    public boolean tryAcquire(int permits, long timeout, TimeUnit unit) {
+        try {
+            return acquire(permits, Channel.nanos(timeout, unit));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RoutineException("Rate limiter wait interrupted", e);
+        }
+    }
+
+    /**
+     * Reserve the given number of permits, without waiting; the caller must wait for the reservation's delay before
+     * going ahead, or cancel it
+     */
+    public Reservation reserve(int permits) {
+        long cost = cost(permits);
+        for (;;) {
+            long now = System.nanoTime();
+            long arrival = this.arrival;
+            long next = Math.max(arrival, now) + cost;
+            if (ARRIVAL.compareAndSet(this, arrival, next)) {
+                return new Reservation(this, cost, Math.max(now, next - tolerance));
+            }
+        }
+    }
+
+    /**
+     * @return most permits that can be acquired at once
+     */
+    public int burst() {
+        return burst;
+    }
+
+    /**
+     * Reserve the permits, and wait until they are due if that's within the timeout
+     *
+     * @param nanos timeout, 0 to not wait at all, or {@code Waiter.FOREVER}
+     * @return true if acquired, false if the permits won't be due in time
+     * @throws InterruptedException if interrupted whilst waiting, the permits are given back
+     * @throws CancellationException if the routine's {@code Context} is cancelled whilst waiting, likewise
+     */
+    boolean acquire(int permits, long nanos) throws InterruptedException {
+        if (nanos == 0) {
+            return tryAcquire(permits);
+        }
+        Reservation reservation = reserve(permits);
+        long delay = reservation.delay(TimeUnit.NANOSECONDS);
+        if (nanos != Waiter.FOREVER && delay > nanos) {
+            reservation.cancel();
+            return false;
+        }
+        while (delay > 0) {
+            if (!Context.await(WaitStrategy.BLOCKING, new Waiter(), delay) && Thread.interrupted()) {
+                reservation.cancel();
+                throw new InterruptedException();
+            }
+            try {
+                Context.checkBound();
+            } catch (CancellationException e) {
+                reservation.cancel();
+                throw e;
+            }
+            delay = reservation.delay(TimeUnit.NANOSECONDS);
+        }
+        return true;
+    }
+
+    /**
+     * Give back permits acquired but not used; they can't be given back beyond a full bucket
+     */
+    void release(int permits) {
+        ARRIVAL.addAndGet(this, -cost(permits));
+    }
+
+    private long cost(int permits) {
+        if (permits < 1) {
+            throw new IllegalArgumentException("Permits must be positive: " + permits);
+        }
+        return interval * permits;
+    }
+
+    /**
+     * Permits reserved, due once the delay has passed
+     */
+    public static final class Reservation {
+
+        private static final AtomicIntegerFieldUpdater<Reservation> CANCELLED =
+                AtomicIntegerFieldUpdater.newUpdater(Reservation.class, "cancelled");
+
+        private final RateLimiter limiter;
+        private final long cost;
+        private final long due;
+        private volatile int cancelled;
+
+        private Reservation(RateLimiter limiter, long cost, long due) {
+            this.limiter = limiter;
+            this.cost = cost;
+            this.due = due;
+        }
+
+        /**
+         * @return time until the permits are due, 0 if they are due now
+         */
+        public long delay(TimeUnit unit) {
+            return unit.convert(Math.max(0, due - System.nanoTime()), TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Give the permits back, so routines reserving after this one needn't wait for them; has no effect once the
+         * permits are due
+         *
+         * @return true if the permits were given back
+         */
+        public boolean cancel() {
+            if (due - System.nanoTime() <= 0 || !CANCELLED.compareAndSet(this, 0, 1)) {
+                return false;
+            }
+            ARRIVAL.addAndGet(limiter, -cost);
+            return true;
+        }
+    }
+}
@@ -1,19 +1,109 @@
 package com.github.stehrn.go;
 
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 /**
  * A very basic POC
+ * <p>
+ * Routines run on virtual threads when running on Java 21 or later (from the multi-release JAR), otherwise on a
+ * cached thread pool. The choice can be forced with the {@code go.routine.scheduler} system property, set to one of:
+ * <ul>
+ * <li>{@code virtual} - virtual threads, still falls back to the cached thread pool if they are not available</li>
+ * <li>{@code platform} - cached thread pool, its threads created by a {@code RoutineThreadFactory} with a stack size
+ * of {@code go.routine.stacksize} (e.g. {@code 256k}, defaults to the JVM default) and that are daemon threads if
+ * {@code go.routine.daemon} is true</li>
+ * <li>{@code forkjoin} - work-stealing pool of {@code go.routine.maxprocs} workers (defaults to the number of
+ * processors), see {@code WorkStealingScheduler}; workers are daemon threads</li>
+ * </ul>
  *
  * Using CompletableFuture.runAsync will limit number of threads
  */
 public class Routine {
 
-    static final ExecutorService service = Executors.newCachedThreadPool();
+    static final String SCHEDULER_PROPERTY = "go.routine.scheduler";
+    static final String MAX_PROCS_PROPERTY = "go.routine.maxprocs";
+    static final String STACK_SIZE_PROPERTY = "go.routine.stacksize";
+    static final String DAEMON_PROPERTY = "go.routine.daemon";
 
-    static void go(Runnable r) {
-        service.submit(r);
-        //Thread.startVirtualThread(r);
+    static final ExecutorService service = scheduler(System.getProperty(SCHEDULER_PROPERTY, "virtual"));
+
+    /**
+     * Start a routine
+     *
+     * @return handle to join or cancel the routine
+     */
+    public static RoutineHandle<Void> go(Runnable r) {
+        return go(RoutineHandle.of(r));
+    }
+
+    /**
+     * Start a routine that returns a value
+     *
+     * @return handle to join or cancel the routine, and get its result
+     */
+    public static <T> RoutineHandle<T> go(Callable<T> c) {
+        return go(new RoutineHandle<>(c));
+    }
+
+    /**
+     * Start a routine with the context bound to it, so any channel operation it blocks in gives up, throwing a
+     * {@code CancellationException}, once the context is cancelled; if the context is cancelled before the routine
+     * starts, it doesn't run at all
+     *
+     * @return handle to join or cancel the routine
+     */
+    public static RoutineHandle<Void> go(Context context, Runnable r) {
+        return go(context, () -> {
+            r.run();
+            return null;
+        });
+    }
+
+    /**
+     * As {@link #go(Context, Runnable)}, for a routine that returns a value
+     *
+     * @return handle to join or cancel the routine, and get its result
+     */
+    public static <T> RoutineHandle<T> go(Context context, Callable<T> c) {
+        return go(bound(context, c));
+    }
+
+    /**
+     * @return task that runs the given task with the context bound to it, unless the context has been cancelled
+     */
+    static <T> Callable<T> bound(Context context, Callable<T> c) {
+        return () -> {
+            Context previous = context.bind();
+            try {
+                context.check();
+                return c.call();
+            } finally {
+                Context.restore(previous);
+            }
+        };
+    }
+
+    private static <T> RoutineHandle<T> go(RoutineHandle<T> handle) {
+        service.execute(handle);
+        return handle;
+    }
+
+    static ExecutorService scheduler(String name) {
+        if ("virtual".equals(name)) {
+            ExecutorService virtual = VirtualThreads.executor();
+            if (virtual != null) {
+                return virtual;
+            }
+        } else if ("forkjoin".equals(name)) {
+            return new WorkStealingScheduler(Integer.getInteger(MAX_PROCS_PROPERTY,
+                    Runtime.getRuntime().availableProcessors()));
+        } else if (!"platform".equals(name)) {
+            throw new IllegalArgumentException("Unknown " + SCHEDULER_PROPERTY + ": " + name);
+        }
+        return RoutineThreadFactory.threads()
+                .stackSize(RoutineThreadFactory.parseSize(System.getProperty(STACK_SIZE_PROPERTY, "0")))
+                .daemon(Boolean.getBoolean(DAEMON_PROPERTY))
+                .executor();
     }
 }
@@ -0,0 +1,12 @@
+package com.github.stehrn.go;
+
+public class RoutineException extends RuntimeException {
+
+    public RoutineException(String message) {
+        super(message);
+    }
+
+    public RoutineException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,178 @@
+package com.github.stehrn.go;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Handle on a routine started with {@code go}, to wait for it to finish, get its result or cancel it:
+ * <pre> {@code
+ * RoutineHandle<Integer> answer = go(() -> compute());
+ * ...
+ * int value = answer.result();
+ * }</pre>
+ * The handle is itself the task handed to the scheduler, so tracking a routine costs a single small object on top of
+ * whatever the scheduler keeps per task (see {@code WorkStealingScheduler}); routines waiting on it are parked on a
+ * lock-free stack and woken when it completes.
+ */
+public final class RoutineHandle<T> implements Runnable {
+
+    private static final int NEW = 0;
+    private static final int RUNNING = 1;
+    private static final int INTERRUPTING = 2;
+    private static final int DONE = 3;
+    private static final int FAILED = 4;
+    private static final int CANCELLED = 5;
+
+    @SuppressWarnings("unchecked")
+    private static final Class<RoutineHandle<?>> HANDLE = (Class<RoutineHandle<?>>) (Class<?>) RoutineHandle.class;
+    private static final AtomicIntegerFieldUpdater<RoutineHandle<?>> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(HANDLE, "state");
+    private static final WaiterStack<RoutineHandle<?>> JOINERS = new WaiterStack<>(
+            AtomicReferenceFieldUpdater.newUpdater(HANDLE, WaiterStack.Node.class, "joiners"));
+
+    private final Callable<T> task;
+    private volatile int state = NEW;
+    private volatile WaiterStack.Node joiners;
+    private volatile Thread runner;
+    private Object outcome;
+
+    RoutineHandle(Callable<T> task) {
+        this.task = task;
+    }
+
+    static RoutineHandle<Void> of(Runnable task) {
+        return new RoutineHandle<>(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    @Override
+    public void run() {
+        if (state != NEW) {
+            return; // cancelled before it started
+        }
+        runner = Thread.currentThread(); // published before RUNNING, so a cancel that sees RUNNING can interrupt
+        if (!STATE.compareAndSet(this, NEW, RUNNING)) {
+            runner = null;
+            return; // cancelled before it started
+        }
+        int completion;
+        try {
+            outcome = task.call();
+            completion = DONE;
+        } catch (Throwable t) {
+            outcome = t;
+            completion = FAILED;
+        }
+        if (!STATE.compareAndSet(this, RUNNING, completion)) {
+            // cancelled whilst running, wait for the interrupt to land so it doesn't leak into the next routine
+            while (state == INTERRUPTING) {
+                Thread.yield();
+            }
+            Thread.interrupted();
+        }
+        runner = null;
+        release();
+    }
+
+    /**
+     * Cancel the routine: it won't start if it has not already, and is interrupted if it is running (so a blocked
+     * channel operation will fail)
+     *
+     * @return false if routine had already completed
+     */
+    public boolean cancel() {
+        if (STATE.compareAndSet(this, NEW, CANCELLED)) {
+            release();
+            return true;
+        }
+        if (STATE.compareAndSet(this, RUNNING, INTERRUPTING)) {
+            Thread thread = runner;
+            if (thread != null) {
+                thread.interrupt();
+            }
+            state = CANCELLED;
+            return true;
+        }
+        return false;
+    }
+
+    public boolean isDone() {
+        return JOINERS.isReleased(this);
+    }
+
+    /**
+     * Wait for the routine to complete, however it completes
+     */
+    public void join() {
+        await(Waiter.FOREVER);
+    }
+
+    /**
+     * Wait at most the given timeout for the routine to complete
+     *
+     * @return true if routine completed
+     */
+    public boolean join(long timeout, TimeUnit unit) {
+        return await(Channel.nanos(timeout, unit));
+    }
+
+    /**
+     * Wait for the routine to complete and return its result
+     *
+     * @return value returned by routine, null for a {@code Runnable}
+     * @throws CancellationException if routine was cancelled
+     * @throws RoutineException      wrapping a checked exception thrown by the routine, any unchecked exception or
+     *                               error is rethrown as is
+     */
+    @SuppressWarnings("unchecked")
+    public T result() {
+        join();
+        switch (state) {
+            case DONE:
+                return (T) outcome;
+            case CANCELLED:
+                throw new CancellationException("Routine cancelled");
+            default:
+                Throwable failure = (Throwable) outcome;
+                if (failure instanceof RuntimeException) {
+                    throw (RuntimeException) failure;
+                }
+                if (failure instanceof Error) {
+                    throw (Error) failure;
+                }
+                throw new RoutineException("Routine failed: " + failure, failure);
+        }
+    }
+
+    private boolean await(long nanos) {
+        long deadline = Waiter.deadline(nanos);
+        Waiter waiter = JOINERS.push(this);
+        if (waiter == null) {
+            return true; // already released
+        }
+        if (!waiter.await(Waiter.remaining(nanos, deadline))) {
+            JOINERS.unlinkCancelled(this);
+            if (Thread.currentThread().isInterrupted()) {
+                throw new RoutineException("Routine join interrupted");
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return number of joiners on the stack, cancelled or not
+     */
+    int joiners() {
+        return JOINERS.size(this);
+    }
+
+    private void release() {
+        JOINERS.release(this, true);
+    }
+}
@@ -0,0 +1,221 @@
+package com.github.stehrn.go;
+
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Starts routines like {@code Routine.go}, but with at most {@code limit} of them running at once, protecting against
+ * the thread explosion (and {@code OutOfMemoryError: unable to create native thread}) an unbounded {@code go} runs into.
+ * <p>
+ * Below the limit starting a routine costs a single CAS on a permit counter. At the limit, what happens depends on how
+ * the limiter was created:
+ * <ul>
+ * <li>{@link #blocking(int)} - the caller parks until a routine finishes</li>
+ * <li>{@link #callerRuns(int)} - the caller runs the routine itself, slowing it down</li>
+ * <li>{@link #rejecting(int)} - a {@code RejectedExecutionException} is thrown</li>
+ * <li>{@link #sheddingOldest(int, int)} - the routine is queued in a bounded backlog, run as soon as another routine
+ * finishes; if the backlog is full its oldest routine is cancelled to make room</li>
+ * </ul>
+ */
+public final class RoutineLimiter {
+
+    private enum Policy {
+        BLOCK, CALLER_RUNS, REJECT, SHED_OLDEST
+    }
+
+    private static final AtomicIntegerFieldUpdater<RoutineLimiter> RUNNING =
+            AtomicIntegerFieldUpdater.newUpdater(RoutineLimiter.class, "running");
+
+    private final int limit;
+    private final Policy policy;
+    private final Queue<Waiter> blocked;
+    private final Buffer<RoutineHandle<?>> backlog;
+    private volatile int running;
+
+    private RoutineLimiter(int limit, Policy policy, int backlog) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Routine limit must be positive: " + limit);
+        }
+        this.limit = limit;
+        this.policy = policy;
+        this.blocked = policy == Policy.BLOCK ? new ConcurrentLinkedQueue<>() : null;
+        this.backlog = policy == Policy.SHED_OLDEST ? new MpmcArrayBuffer<>(backlog) : null;
+    }
+
+    public static RoutineLimiter blocking(int limit) {
+        return new RoutineLimiter(limit, Policy.BLOCK, 0);
+    }
+
+    public static RoutineLimiter callerRuns(int limit) {
+        return new RoutineLimiter(limit, Policy.CALLER_RUNS, 0);
+    }
+
+    public static RoutineLimiter rejecting(int limit) {
+        return new RoutineLimiter(limit, Policy.REJECT, 0);
+    }
+
+    public static RoutineLimiter sheddingOldest(int limit, int backlog) {
+        return new RoutineLimiter(limit, Policy.SHED_OLDEST, backlog);
+    }
+
+    /**
+     * Start a routine, subject to the limit
+     *
+     * @return handle to join or cancel the routine
+     * @throws RejectedExecutionException if rejecting and at the limit
+     * @throws RoutineException           if blocking and interrupted whilst waiting
+     */
+    public RoutineHandle<Void> go(Runnable r) {
+        return go(RoutineHandle.of(r));
+    }
+
+    /**
+     * Start a routine that returns a value, subject to the limit
+     *
+     * @return handle to join or cancel the routine, and get its result
+     * @throws RejectedExecutionException if rejecting and at the limit
+     * @throws RoutineException           if blocking and interrupted whilst waiting
+     */
+    public <T> RoutineHandle<T> go(Callable<T> c) {
+        return go(new RoutineHandle<>(c));
+    }
+
+    /**
+     * @return number of routines currently holding a permit
+     */
+    public int running() {
+        return running;
+    }
+
+    private <T> RoutineHandle<T> go(RoutineHandle<T> handle) {
+        if (acquire()) {
+            start(handle);
+            return handle;
+        }
+        switch (policy) {
+            case CALLER_RUNS:
+                handle.run();
+                break;
+            case REJECT:
+                throw new RejectedExecutionException("Routine limit of " + limit + " reached");
+            case SHED_OLDEST:
+                queue(handle);
+                break;
+            default:
+                block();
+                start(handle);
+        }
+        return handle;
+    }
+
+    private boolean acquire() {
+        for (;;) {
+            int n = running;
+            if (n >= limit) {
+                return false;
+            }
+            if (RUNNING.compareAndSet(this, n, n + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void release() {
+        RUNNING.decrementAndGet(this);
+        if (blocked != null && !blocked.isEmpty()) {
+            wake();
+        }
+    }
+
+    /**
+     * Start the routine, permit held
+     */
+    private void start(RoutineHandle<?> handle) {
+        try {
+            Routine.service.execute(() -> run(handle));
+        } catch (RuntimeException e) {
+            release();
+            throw e;
+        }
+    }
+
+    /**
+     * Run the routine, then any backlog, before giving up the permit
+     */
+    private void run(RoutineHandle<?> handle) {
+        do {
+            handle.run();
+        } while ((handle = next()) != null);
+    }
+
+    /**
+     * Take the next routine from the backlog, permit held
+     *
+     * @return next routine, still holding the permit, or null if the permit has been released
+     */
+    private RoutineHandle<?> next() {
+        for (;;) {
+            if (backlog != null) {
+                RoutineHandle<?> handle = backlog.poll();
+                if (handle != null) {
+                    return handle;
+                }
+            }
+            release();
+            // a routine queued whilst the permit was still held may have missed it, so check again
+            if (backlog == null || backlog.isEmpty() || !acquire()) {
+                return null;
+            }
+        }
+    }
+
+    private void queue(RoutineHandle<?> handle) {
+        while (!backlog.offer(handle)) {
+            RoutineHandle<?> oldest = backlog.poll();
+            if (oldest != null) {
+                oldest.cancel();
+            }
+        }
+        // every running routine may have finished before the routine was queued
+        if (acquire()) {
+            RoutineHandle<?> next = next();
+            if (next != null) {
+                start(next);
+            }
+        }
+    }
+
+    private void block() {
+        Waiter waiter = null;
+        for (;;) {
+            if (acquire()) {
+                if (waiter != null && !waiter.cancel()) {
+                    wake(); // fired whilst taking a permit anyway, pass the wake-up on
+                }
+                return;
+            }
+            if (waiter == null) {
+                waiter = new Waiter();
+                blocked.add(waiter);
+                continue; // check again once queued, so a release can't be missed
+            }
+            if (!waiter.await(Waiter.FOREVER)) {
+                throw new RoutineException("Routine limit wait interrupted");
+            }
+            waiter = null;
+        }
+    }
+
+    private void wake() {
+        Waiter waiter;
+        while ((waiter = blocked.poll()) != null) {
+            if (waiter.fire(0)) {
+                waiter.unpark();
+                return;
+            }
+        }
+    }
+}
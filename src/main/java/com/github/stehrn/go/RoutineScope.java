@@ -0,0 +1,185 @@
+package com.github.stehrn.go;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Scope that the routines it starts can't outlive, so a request that fails doesn't leave routines behind working for
+ * it:
+ * <pre> {@code
+ * try (RoutineScope scope = RoutineScope.open(1, TimeUnit.SECONDS)) {
+ *     RoutineHandle<User> user = scope.go(() -> users.find(id));
+ *     RoutineHandle<List<Order>> orders = scope.go(() -> orders.find(id));
+ *     scope.join();
+ *     return new Page(user.result(), orders.result());
+ * }
+ * }</pre>
+ * Every routine of the scope runs with the scope's {@code Context} bound to it, a child of the context of the routine
+ * that opened the scope. As soon as one routine fails, the context is cancelled, so its siblings give up whatever
+ * channel operation they are blocked in (and any that haven't started yet don't run at all), and {@link #join()} throws
+ * the failure once they have all finished. The same happens when the scope's deadline passes, {@code join} then throwing
+ * a {@code CancellationException}. A routine that computes for a long time without blocking should check
+ * {@code Context.current().isCancelled()} now and then.
+ * <p>
+ * Closing the scope without joining it cancels it, and waits for its routines to finish. Routines run on the same
+ * scheduler as {@code Routine.go}, whether virtual threads or the cached thread pool.
+ */
+public final class RoutineScope implements AutoCloseable {
+
+    private static final AtomicReferenceFieldUpdater<RoutineScope, Throwable> FAILURE =
+            AtomicReferenceFieldUpdater.newUpdater(RoutineScope.class, Throwable.class, "failure");
+
+    private final Context context;
+    private final Queue<RoutineHandle<?>> routines = new ConcurrentLinkedQueue<>();
+    private volatile Throwable failure;
+    private volatile boolean cancelled;
+    private volatile boolean closed;
+
+    private RoutineScope(Context context) {
+        this.context = context;
+    }
+
+    /**
+     * Open a scope with no deadline, other than that of the calling routine's context
+     */
+    public static RoutineScope open() {
+        return new RoutineScope(Context.current().withCancel());
+    }
+
+    /**
+     * Open a scope whose routines are cancelled once the timeout has elapsed
+     */
+    public static RoutineScope open(long timeout, TimeUnit unit) {
+        return new RoutineScope(Context.current().withTimeout(timeout, unit));
+    }
+
+    /**
+     * Start a routine in the scope
+     *
+     * @return handle to get the routine's result once the scope has been joined
+     * @throws IllegalStateException if the scope has been closed
+     */
+    public RoutineHandle<Void> go(Runnable r) {
+        return go(() -> {
+            r.run();
+            return null;
+        });
+    }
+
+    /**
+     * Start a routine that returns a value in the scope
+     *
+     * @return handle to get the routine's result once the scope has been joined
+     * @throws IllegalStateException if the scope has been closed
+     */
+    public <T> RoutineHandle<T> go(Callable<T> c) {
+        if (closed) {
+            throw new IllegalStateException("Scope is closed");
+        }
+        Callable<T> task = Routine.bound(context, c);
+        RoutineHandle<T> handle = Routine.go(() -> {
+            try {
+                return task.call();
+            } catch (Exception | Error e) {
+                failed(e);
+                throw e;
+            }
+        });
+        routines.add(handle);
+        return handle;
+    }
+
+    /**
+     * Wait for every routine started in the scope to finish
+     *
+     * @throws CancellationException if the scope's deadline passed (or the context of the routine that opened the
+     *                               scope was cancelled) before every routine finished
+     * @throws RoutineException      wrapping the first checked exception a routine threw, the first unchecked
+     *                               exception or error is rethrown as is
+     */
+    public void join() {
+        await();
+        Throwable failure = this.failure;
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure != null) {
+            throw new RoutineException("Routine failed: " + failure, failure);
+        }
+        if (cancelled) {
+            throw new CancellationException(context.reason());
+        }
+    }
+
+    /**
+     * Start a routine in the scope for every task, and wait for them all to finish
+     *
+     * @return result of each task, in the order given
+     * @throws CancellationException as for {@link #join()}
+     * @throws RoutineException      as for {@link #join()}
+     */
+    public <T> List<T> invokeAll(Collection<? extends Callable<T>> tasks) {
+        List<RoutineHandle<T>> handles = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            handles.add(go(task));
+        }
+        join();
+        List<T> results = new ArrayList<>(handles.size());
+        for (RoutineHandle<T> handle : handles) {
+            results.add(handle.result());
+        }
+        return results;
+    }
+
+    /**
+     * @return context bound to every routine of the scope, cancelled on the first failure
+     */
+    public Context context() {
+        return context;
+    }
+
+    /**
+     * Cancel the scope, every routine still blocked in a channel operation gives up, and any not yet started don't run
+     */
+    public void cancel() {
+        context.cancel();
+    }
+
+    /**
+     * Cancel any routines still running and wait for them to finish; no more routines can be started in the scope
+     */
+    @Override
+    public void close() {
+        closed = true;
+        context.cancel();
+        await();
+    }
+
+    private void await() {
+        for (RoutineHandle<?> routine : routines) {
+            routine.join();
+        }
+    }
+
+    /**
+     * Record the first failure and cancel every other routine of the scope; a routine giving up because the scope was
+     * cancelled isn't a failure
+     */
+    private void failed(Throwable e) {
+        if (e instanceof CancellationException && context.isCancelled()) {
+            cancelled = true;
+        } else if (FAILURE.compareAndSet(this, null, e)) {
+            context.cancel();
+        }
+    }
+}
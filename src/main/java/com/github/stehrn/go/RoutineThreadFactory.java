@@ -0,0 +1,115 @@
+package com.github.stehrn.go;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates platform threads for routines, with a stack size of their own rather than the JVM wide {@code -Xss}:
+ * <pre> {@code
+ * ExecutorService routines = threads().stackSize(256 * 1024).daemon(true).name("worker-").executor();
+ * }</pre>
+ * Most routines spend their time blocked on a channel with a shallow stack, so on JVMs without virtual threads a small
+ * stack size (a few hundred kb instead of the 1MB default) lets many more routines be held per node. The stack size
+ * is passed to the {@code Thread(ThreadGroup, Runnable, String, long)} constructor, which the JVM is free to treat as
+ * a hint (or ignore) on some platforms; too small a stack leads to {@code StackOverflowError}.
+ * <p>
+ * The platform routine scheduler (see {@code Routine}) uses a factory configured from the {@code go.routine.stacksize}
+ * and {@code go.routine.daemon} system properties.
+ */
+public final class RoutineThreadFactory implements ThreadFactory {
+
+    private static final AtomicInteger FACTORIES = new AtomicInteger();
+
+    private final AtomicInteger threads = new AtomicInteger();
+    private long stackSize;
+    private boolean daemon;
+    private String name = "routine-" + FACTORIES.incrementAndGet() + "-";
+    private ThreadGroup group;
+
+    private RoutineThreadFactory() {
+    }
+
+    public static RoutineThreadFactory threads() {
+        return new RoutineThreadFactory();
+    }
+
+    /**
+     * @param stackSize stack size in bytes, 0 (the default) for the JVM default
+     */
+    public RoutineThreadFactory stackSize(long stackSize) {
+        if (stackSize < 0) {
+            throw new IllegalArgumentException("Stack size must not be negative: " + stackSize);
+        }
+        this.stackSize = stackSize;
+        return this;
+    }
+
+    /**
+     * @param daemon true to create daemon threads, which don't stop the JVM exiting
+     */
+    public RoutineThreadFactory daemon(boolean daemon) {
+        this.daemon = daemon;
+        return this;
+    }
+
+    /**
+     * @param prefix thread names are the prefix followed by a sequence number
+     */
+    public RoutineThreadFactory name(String prefix) {
+        this.name = prefix;
+        return this;
+    }
+
+    /**
+     * @param group thread group to create threads in, by default that of the creating thread
+     */
+    public RoutineThreadFactory group(ThreadGroup group) {
+        this.group = group;
+        return this;
+    }
+
+    /**
+     * @return cached thread pool that creates its threads from this factory
+     */
+    public ExecutorService executor() {
+        return Executors.newCachedThreadPool(this);
+    }
+
+    @Override
+    public Thread newThread(Runnable r) {
+        Thread thread = new Thread(group, r, name + threads.incrementAndGet(), stackSize);
+        thread.setDaemon(daemon);
+        return thread;
+    }
+
+    /**
+     * @param size size in bytes, with an optional {@code k}, {@code m} or {@code g} suffix, as for {@code -Xss}
+     * @return size in bytes
+     */
+    static long parseSize(String size) {
+        String value = size.trim().toLowerCase();
+        int shift = 0;
+        switch (value.isEmpty() ? ' ' : value.charAt(value.length() - 1)) {
+            case 'k':
+                shift = 10;
+                break;
+            case 'm':
+                shift = 20;
+                break;
+            case 'g':
+                shift = 30;
+                break;
+            default:
+        }
+        if (shift != 0) {
+            value = value.substring(0, value.length() - 1);
+        }
+        try {
+            return Long.parseLong(value) << shift;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid size: " + size);
+        }
+    }
+}
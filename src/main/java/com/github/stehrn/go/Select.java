@@ -0,0 +1,353 @@
+package com.github.stehrn.go;
+
+import com.github.stehrn.go.Channel.ChannelResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Wait on several channel operations at once, and run the handler of exactly one that completes (equivalent to a
+ * {@code select} statement in go):
+ * <pre> {@code
+ * select()
+ *     .onReceive(requests, request -> handle(request))
+ *     .onReceive(quit, ignore -> stop())
+ *     .orTimeout(1, TimeUnit.SECONDS, () -> idle())
+ *     .run();
+ * }</pre>
+ * If more than one operation is ready, one is picked at random, so no channel is starved. If none are ready, the
+ * {@code orDefault} handler is run if there is one, otherwise the routine queues a single waiter on every channel and
+ * parks until one of them fires it (or the {@code orTimeout} timeout elapses).
+ * <p>
+ * Receiving from a closed channel is always ready (the handler is given null, or a closed {@code ChannelResult}),
+ * whilst sending to a closed channel throws a {@code ChannelException}, as does a routine interrupted whilst waiting; a
+ * routine whose {@code Context} is cancelled whilst waiting throws a {@code CancellationException}.
+ * <p>
+ * A {@code Select} can be built once and run repeatedly, e.g. in a loop, but by only one routine at a time.
+ */
+public final class Select {
+
+    private final List<Case<?>> cases = new ArrayList<>();
+    private Channel<?>[] locks;
+    private Runnable orDefault;
+    private Runnable orTimeout;
+    private long timeoutNanos = Waiter.FOREVER;
+
+    private Select() {
+    }
+
+    public static Select select() {
+        return new Select();
+    }
+
+    /**
+     * Add a case that receives a value from the channel
+     *
+     * @param channel channel to receive from
+     * @param handler given value received, or null if channel is closed
+     * @return this select
+     */
+    public <T> Select onReceive(Channel<T> channel, Consumer<? super T> handler) {
+        return add(new ReceiveCase<>(channel, (value, closed) -> handler.accept(value)));
+    }
+
+    /**
+     * Add a case that receives a result from the channel, telling a closed channel apart from a null value
+     *
+     * @param channel channel to receive from
+     * @param handler given result received
+     * @return this select
+     */
+    public <T> Select onResult(Channel<T> channel, Consumer<? super ChannelResult<T>> handler) {
+        return add(new ReceiveCase<>(channel, (value, closed) -> handler.accept(new ChannelResult<>(value, closed))));
+    }
+
+    /**
+     * Add a case that sends a value into the channel
+     *
+     * @param channel channel to send to
+     * @param value   value to send, may be null
+     * @param handler run once value is sent
+     * @return this select
+     */
+    public <T> Select onSend(Channel<T> channel, T value, Runnable handler) {
+        return add(new SendCase<>(channel, Channel.mask(value), handler));
+    }
+
+    /**
+     * Run the given handler, rather than wait, if no case is ready
+     */
+    public Select orDefault(Runnable handler) {
+        this.orDefault = handler;
+        return this;
+    }
+
+    /**
+     * Run the given handler if no case is ready within the timeout
+     */
+    public Select orTimeout(long timeout, TimeUnit unit, Runnable handler) {
+        this.timeoutNanos = Channel.nanos(timeout, unit);
+        this.orTimeout = handler;
+        return this;
+    }
+
+    /**
+     * Wait for one of the cases to complete and run its handler (or the default or timeout handler)
+     */
+    public void run() {
+        int[] order = shuffle(cases.size());
+        long deadline = Waiter.deadline(timeoutNanos);
+        Case<?> signalled = null;
+        for (;;) {
+            Case<?> ready = null;
+            Waiter waiter = null;
+            lockAll();
+            try {
+                if (signalled != null && signalled.attempt()) {
+                    ready = signalled;
+                } else {
+                    for (int index : order) {
+                        if (cases.get(index).attempt()) {
+                            ready = cases.get(index);
+                            break;
+                        }
+                    }
+                }
+                if (ready == null && orDefault == null) {
+                    waiter = register();
+                }
+            } finally {
+                unlockAll();
+            }
+
+            if (ready != null) {
+                ready.run();
+                return;
+            }
+            if (orDefault != null) {
+                orDefault.run();
+                return;
+            }
+            if (waiter == null) {
+                continue; // a value moved outside the lock whilst registering, try again
+            }
+
+            boolean fired = Context.await(WaitStrategy.BLOCKING, waiter, Waiter.remaining(timeoutNanos, deadline));
+            lockAll();
+            try {
+                for (Case<?> c : cases) {
+                    c.deregister();
+                }
+            } finally {
+                unlockAll();
+            }
+            if (!fired) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new ChannelException("Channel failure: interrupted");
+                }
+                Context.checkBound();
+                orTimeout.run();
+                return;
+            }
+            Case<?> c = cases.get(waiter.state());
+            if (c.completed()) {
+                c.run();
+                return;
+            }
+            signalled = c;
+        }
+    }
+
+    /**
+     * Queue a waiter on every channel, all locks held
+     *
+     * @return waiter, or null if a buffered case may now be ready
+     */
+    private Waiter register() {
+        Waiter waiter = new Waiter();
+        for (int i = 0; i < cases.size(); i++) {
+            cases.get(i).register(waiter, i);
+        }
+        for (Case<?> c : cases) {
+            if (c.mayComplete()) {
+                for (Case<?> registered : cases) {
+                    registered.deregister();
+                }
+                return null;
+            }
+        }
+        return waiter;
+    }
+
+    private Select add(Case<?> c) {
+        cases.add(c);
+        locks = null;
+        return this;
+    }
+
+    /**
+     * Lock every channel in order of id, so two selects over the same channels can't deadlock
+     */
+    private void lockAll() {
+        if (locks == null) {
+            locks = cases.stream().map(c -> c.channel).distinct()
+                    .sorted((a, b) -> Long.compare(a.id, b.id))
+                    .toArray(Channel<?>[]::new);
+        }
+        for (Channel<?> channel : locks) {
+            channel.lock.lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (int i = locks.length - 1; i >= 0; i--) {
+            locks[i].lock.unlock();
+        }
+    }
+
+    private static int[] shuffle(int size) {
+        int[] order = new int[size];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < size; i++) {
+            int j = random.nextInt(i + 1);
+            order[i] = order[j];
+            order[j] = i;
+        }
+        return order;
+    }
+
+    private interface ReceiveHandler<T> {
+        void accept(T value, boolean closed);
+    }
+
+    private abstract static class Case<T> {
+
+        final Channel<T> channel;
+        WaitQueue.Node node;
+
+        Case(Channel<T> channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Try to complete without waiting
+         */
+        abstract boolean attempt();
+
+        abstract void register(Waiter waiter, int index);
+
+        abstract boolean mayComplete();
+
+        /**
+         * Called when the waiter was fired for this case
+         *
+         * @return true if complete, false if the case should be attempted again
+         */
+        abstract boolean completed();
+
+        /**
+         * Run handler of completed case
+         */
+        abstract void run();
+
+        void deregister(WaitQueue queue) {
+            if (node != null) {
+                queue.remove(node);
+            }
+        }
+
+        abstract void deregister();
+    }
+
+    private static final class ReceiveCase<T> extends Case<T> {
+
+        private final ReceiveHandler<T> handler;
+        private T value;
+
+        ReceiveCase(Channel<T> channel, ReceiveHandler<T> handler) {
+            super(channel);
+            this.handler = handler;
+        }
+
+        @Override
+        boolean attempt() {
+            value = channel.take(0);
+            return value != Channel.NONE;
+        }
+
+        @Override
+        void register(Waiter waiter, int index) {
+            node = new WaitQueue.Node(waiter, index);
+            channel.receivers.add(node);
+        }
+
+        @Override
+        boolean mayComplete() {
+            return channel.mayReceive();
+        }
+
+        @Override
+        boolean completed() {
+            value = channel.received(node);
+            return value != Channel.NONE;
+        }
+
+        @Override
+        void run() {
+            T received = value;
+            value = null;
+            handler.accept(Channel.unmask(received), received == null);
+        }
+
+        @Override
+        void deregister() {
+            deregister(channel.receivers);
+        }
+    }
+
+    private static final class SendCase<T> extends Case<T> {
+
+        private final T value;
+        private final Runnable handler;
+
+        SendCase(Channel<T> channel, T value, Runnable handler) {
+            super(channel);
+            this.value = value;
+            this.handler = handler;
+        }
+
+        @Override
+        boolean attempt() {
+            return channel.put(value, 0);
+        }
+
+        @Override
+        void register(Waiter waiter, int index) {
+            node = new WaitQueue.Node(waiter, index, value);
+            channel.senders.add(node);
+        }
+
+        @Override
+        boolean mayComplete() {
+            return channel.maySend();
+        }
+
+        @Override
+        boolean completed() {
+            return channel.sent(node);
+        }
+
+        @Override
+        void run() {
+            handler.run();
+        }
+
+        @Override
+        void deregister() {
+            deregister(channel.senders);
+        }
+    }
+}
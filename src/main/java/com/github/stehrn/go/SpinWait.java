@@ -0,0 +1,39 @@
+package com.github.stehrn.go;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Hint to the processor that the caller is busy-waiting ({@code Thread.onSpinWait}, from Java 9).
+ * <p>
+ * This version is compiled for Java 8, so it looks {@code Thread.onSpinWait} up once through a {@code MethodHandle}:
+ * on Java 9 to 20 the hint is given through the handle (a constant the JIT inlines), on Java 8 there is no hint and the
+ * caller simply spins. A multi-release JAR built on Java 21 also carries a Java 21 version of this class (under
+ * {@code src/main/java21}), calling {@code Thread.onSpinWait} directly, that Java 21 and later pick up in its place.
+ */
+final class SpinWait {
+
+    private static final MethodHandle ON_SPIN_WAIT = onSpinWaitHandle();
+
+    private SpinWait() {
+    }
+
+    static void onSpinWait() {
+        if (ON_SPIN_WAIT != null) {
+            try {
+                ON_SPIN_WAIT.invokeExact();
+            } catch (Throwable t) {
+                // Thread.onSpinWait doesn't throw
+            }
+        }
+    }
+
+    private static MethodHandle onSpinWaitHandle() {
+        try {
+            return MethodHandles.lookup().findStatic(Thread.class, "onSpinWait", MethodType.methodType(void.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null; // Java 8
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.github.stehrn.go;
+
+/**
+ * Wait-free bounded buffer for exactly one producer and one consumer.
+ * <p>
+ * Each side owns its index outright, so there is no CAS: the producer fills a slot and then publishes {@code tail},
+ * the consumer empties a slot and then publishes {@code head}. Each side also keeps a plain cached copy of the other
+ * side's index, and only re-reads the shared (padded) counter when the cached copy says the buffer is full or empty,
+ * which keeps the producer and consumer off each other's cache lines in the steady state.
+ * <p>
+ * Indices are published with a volatile write rather than {@code lazySet}: a parked peer is only woken if the side
+ * publishing an index can see it registered, and that needs the StoreLoad barrier a volatile write gives.
+ */
+final class SpscArrayBuffer<E> implements Buffer<E> {
+
+    private final PaddedAtomicLong head = new PaddedAtomicLong(0);
+    private final PaddedAtomicLong tail = new PaddedAtomicLong(0);
+    private final Object[] elements;
+    private final int mask;
+    private final int capacity;
+    private long headCache; // producer only
+    private long tailCache; // consumer only
+
+    SpscArrayBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        int slots = 1 << (32 - Integer.numberOfLeadingZeros(capacity - 1));
+        this.capacity = capacity;
+        this.mask = slots - 1;
+        this.elements = new Object[slots];
+    }
+
+    @Override
+    public boolean offer(E value) {
+        long t = tail.get();
+        if (t - headCache >= capacity) {
+            headCache = head.get();
+            if (t - headCache >= capacity) {
+                return false;
+            }
+        }
+        elements[(int) t & mask] = value;
+        tail.set(t + 1);
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long h = head.get();
+        if (h >= tailCache) {
+            tailCache = tail.get();
+            if (h >= tailCache) {
+                return null;
+            }
+        }
+        int index = (int) h & mask;
+        E value = (E) elements[index];
+        elements[index] = null;
+        head.set(h + 1);
+        return value;
+    }
+
+    @Override
+    public int offer(Object[] values, int from, int to) {
+        long t = tail.get();
+        if (t + (to - from) - headCache > capacity) {
+            headCache = head.get();
+        }
+        int n = (int) Math.min(to - from, capacity - (t - headCache));
+        for (int i = 0; i < n; i++) {
+            elements[(int) (t + i) & mask] = values[from + i];
+        }
+        if (n > 0) {
+            tail.set(t + n);
+        }
+        return n;
+    }
+
+    @Override
+    public int poll(Object[] into, int offset, int max) {
+        long h = head.get();
+        if (h + max > tailCache) {
+            tailCache = tail.get();
+        }
+        int n = (int) Math.min(max, tailCache - h);
+        for (int i = 0; i < n; i++) {
+            int index = (int) (h + i) & mask;
+            into[offset + i] = Channel.unmask(elements[index]);
+            elements[index] = null;
+        }
+        if (n > 0) {
+            head.set(h + n);
+        }
+        return n;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        long h = head.get();
+        return tail.get() == h;
+    }
+
+    @Override
+    public boolean isFull() {
+        long h = head.get();
+        return tail.get() - h >= capacity;
+    }
+}
@@ -0,0 +1,94 @@
+package com.github.stehrn.go;
+
+/**
+ * Unbuffered channel, a value is handed directly from a sender to a receiver.
+ * <p>
+ * Whichever side arrives second finds the other parked in its wait queue, takes (or gives) the value and unparks it;
+ * the first side to arrive queues itself and parks.
+ */
+final class SyncChannel<T> extends Channel<T> {
+
+    @Override
+    boolean put(T value, long nanos) {
+        WaitQueue.Node receiver;
+        WaitQueue.Node node = null;
+        lock.lock();
+        try {
+            if (closed) {
+                throw closedException();
+            }
+            receiver = receivers.fire(value);
+            if (receiver == null) {
+                if (nanos == 0) {
+                    return false;
+                }
+                node = new WaitQueue.Node(new Waiter(), 0, value);
+                senders.add(node);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (receiver != null) {
+            receiver.waiter.unpark();
+            return true;
+        }
+        return await(senders, node, nanos) && !node.closed;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    T take(long nanos) {
+        WaitQueue.Node sender;
+        WaitQueue.Node node = null;
+        lock.lock();
+        try {
+            if (closed) {
+                return null;
+            }
+            sender = senders.fire();
+            if (sender == null) {
+                if (nanos == 0) {
+                    return (T) NONE;
+                }
+                node = new WaitQueue.Node(new Waiter(), 0);
+                receivers.add(node);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (sender != null) {
+            sender.waiter.unpark();
+            return (T) sender.item;
+        }
+        if (!await(receivers, node, nanos)) {
+            return (T) NONE;
+        }
+        return node.closed ? null : (T) node.item;
+    }
+
+    @Override
+    boolean mayReceive() {
+        return false;
+    }
+
+    @Override
+    boolean maySend() {
+        return false;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    T received(WaitQueue.Node node) {
+        return node.closed ? null : (T) node.item;
+    }
+
+    @Override
+    boolean sent(WaitQueue.Node node) {
+        if (node.closed) {
+            throw closedException();
+        }
+        return true;
+    }
+}
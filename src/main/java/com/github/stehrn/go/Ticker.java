@@ -0,0 +1,89 @@
+package com.github.stehrn.go;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends the time on its channel every period, until stopped (equivalent to {@code time.Ticker} in go); created by
+ * {@link Timers#newTicker(long, TimeUnit)}.
+ * <p>
+ * Each tick is due a whole number of periods after the ticker was started, rather than a period after the last tick
+ * happened to fire, so the ticks don't drift however late each one is. The channel has a buffer of one, and a tick is
+ * dropped rather than queued when the last one hasn't been received yet, so a receiver that falls behind gets a
+ * single tick when it catches up, not a burst of stale ones; ticks missed altogether (say the wheel thread wasn't
+ * scheduled for a few periods) are skipped, the next tick staying on the original cadence.
+ */
+public final class Ticker {
+
+    private final Channel<Instant> channel = Channel.channel(1);
+    private volatile Ticks ticks;
+
+    Ticker(long period, TimeUnit unit) {
+        start(period, unit);
+    }
+
+    /**
+     * @return channel the time is sent on every tick
+     */
+    public Channel<Instant> channel() {
+        return channel;
+    }
+
+    /**
+     * Stop the ticker, no more ticks are sent; doesn't close the channel, nor drain a tick not yet received
+     */
+    public void stop() {
+        ticks.stopped = true;
+    }
+
+    /**
+     * Stop the ticker then start it again with the given period, the first tick due a period from now
+     */
+    public void reset(long period, TimeUnit unit) {
+        stop();
+        start(period, unit);
+    }
+
+    private void start(long period, TimeUnit unit) {
+        long nanos = unit.toNanos(period);
+        if (nanos <= 0) {
+            throw new IllegalArgumentException("Period must be positive: " + period);
+        }
+        TimerWheel wheel = Timers.wheel();
+        Ticks ticks = new Ticks(channel, nanos, wheel.elapsed() + nanos);
+        this.ticks = ticks;
+        wheel.schedule(ticks);
+    }
+
+    /**
+     * One start of the ticker, so ticks that were stopped can't carry on after the ticker has been reset
+     */
+    private static final class Ticks extends TimerWheel.Entry {
+
+        private final Channel<Instant> channel;
+        private final long period;
+        private long due; // nanos elapsed on the wheel
+        private volatile boolean stopped;
+
+        Ticks(Channel<Instant> channel, long period, long due) {
+            this.channel = channel;
+            this.period = period;
+            this.due = due;
+            this.deadline = TimerWheel.tickAt(due);
+        }
+
+        @Override
+        long expire(long tick) {
+            if (stopped) {
+                return -1;
+            }
+            channel.trySend(Instant.now()); // dropped if the last tick hasn't been received
+            long now = tick * TimerWheel.TICK_NANOS;
+            due += period;
+            if (due <= now) {
+                due += ((now - due) / period + 1) * period; // skip ticks missed altogether
+            }
+            return TimerWheel.tickAt(due);
+        }
+    }
+}
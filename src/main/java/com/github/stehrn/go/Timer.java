@@ -0,0 +1,84 @@
+package com.github.stehrn.go;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Single event that sends the time on its channel once a delay has passed, unless stopped first (equivalent to
+ * {@code time.Timer} in go); created by {@link Timers#newTimer(long, TimeUnit)}.
+ * <p>
+ * The channel has a buffer of one, so the timer never blocks waiting for the value to be received.
+ */
+public final class Timer {
+
+    private final Channel<Instant> channel = Channel.channel(1);
+    private volatile Shot shot;
+
+    Timer(long delay, TimeUnit unit) {
+        start(delay, unit);
+    }
+
+    /**
+     * @return channel the time is sent on when the timer fires
+     */
+    public Channel<Instant> channel() {
+        return channel;
+    }
+
+    /**
+     * Stop the timer from firing; doesn't drain the channel if it already has
+     *
+     * @return true if the timer was stopped, false if it had already fired or been stopped
+     */
+    public boolean stop() {
+        return shot.cancel();
+    }
+
+    /**
+     * Stop the timer then start it again with the given delay; as in go, if the timer may already have fired, stop it
+     * and drain the channel before resetting, or the old value may be received after the reset
+     *
+     * @return true if the timer was still running
+     */
+    public boolean reset(long delay, TimeUnit unit) {
+        boolean active = stop();
+        start(delay, unit);
+        return active;
+    }
+
+    private void start(long delay, TimeUnit unit) {
+        TimerWheel wheel = Timers.wheel();
+        Shot shot = new Shot(channel);
+        shot.deadline = wheel.deadline(unit.toNanos(delay));
+        this.shot = shot;
+        wheel.schedule(shot);
+    }
+
+    /**
+     * One start of the timer, so a shot that was stopped can't fire after the timer has been reset
+     */
+    private static final class Shot extends TimerWheel.Entry {
+
+        private static final int PENDING = 0, FIRED = 1, CANCELLED = 2;
+
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        private final Channel<Instant> channel;
+
+        Shot(Channel<Instant> channel) {
+            this.channel = channel;
+        }
+
+        boolean cancel() {
+            return state.compareAndSet(PENDING, CANCELLED);
+        }
+
+        @Override
+        long expire(long tick) {
+            if (state.compareAndSet(PENDING, FIRED)) {
+                channel.trySend(Instant.now());
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.github.stehrn.go;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hierarchical hashed timer wheel, run by a single daemon thread, that expires any number of pending timers (see
+ * {@code Timers}) without a thread per timer.
+ * <p>
+ * Time is counted in ticks of {@code TICK_NANOS}. The wheel has {@code LEVELS} levels of 64 slots, level {@code L}
+ * holding entries due within {@code 64^(L+1)} ticks, in the slot given by bits {@code 6L} up of their deadline; each
+ * time the ticks below a level wrap round, the level's next slot is cascaded, its entries re-inserted a level (or more)
+ * down, so an entry is only ever touched once per level on the way to expiring. Entries due further out than the top
+ * level wait on an overflow list, re-inserted every time the top level cascades.
+ * <p>
+ * Only the wheel thread touches the slots. Other threads hand new entries over through a lock-free queue and unpark
+ * the wheel thread if it is asleep; when nothing is due in the next few ticks it sleeps until the next slot that has
+ * anything in it (or the next cascade), and when there are no entries at all it parks until one is added. Cancelled
+ * entries are left in place, and dropped when they come due.
+ */
+final class TimerWheel implements Runnable {
+
+    static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 5;
+
+    /**
+     * Something due at a given tick
+     */
+    abstract static class Entry {
+        long deadline;
+        private Entry next;
+
+        /**
+         * Called on the wheel thread once the deadline has been reached
+         *
+         * @param tick current tick
+         * @return tick to be called again at, or -1 if done
+         */
+        abstract long expire(long tick);
+    }
+
+    private final Entry[][] wheel = new Entry[LEVELS][SLOTS];
+    private final Queue<Entry> inbox = new ConcurrentLinkedQueue<>();
+    private final long start = System.nanoTime();
+    private final Thread thread;
+    private volatile boolean sleeping;
+    private Entry overflow;
+    private long ticks; // last tick processed
+    private int pending;
+
+    TimerWheel(String name) {
+        thread = new Thread(this, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return current tick, by elapsed time
+     */
+    long tick() {
+        return elapsed() / TICK_NANOS;
+    }
+
+    /**
+     * @return nanos elapsed since the wheel started, the time scale entries are scheduled on
+     */
+    long elapsed() {
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * @return first tick at or after the given delay from now
+     */
+    long deadline(long nanos) {
+        return tickAt(elapsed() + Math.max(0, nanos));
+    }
+
+    /**
+     * @return first tick at or after the given elapsed nanos
+     */
+    static long tickAt(long elapsed) {
+        return (elapsed + TICK_NANOS - 1) / TICK_NANOS;
+    }
+
+    /**
+     * @return nanos until the start of the given tick, negative if it has passed
+     */
+    long nanosUntil(long tick) {
+        return start + tick * TICK_NANOS - System.nanoTime();
+    }
+
+    /**
+     * Schedule the entry to expire at its deadline, from any thread
+     */
+    void schedule(Entry entry) {
+        inbox.add(entry);
+        if (sleeping) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    @Override
+    public void run() {
+        for (;;) {
+            long now = tick();
+            if (pending == 0) {
+                ticks = now; // nothing to expire on the ticks missed whilst idle
+            }
+            drain();
+            while (ticks < now) {
+                advance(++ticks);
+                drain();
+            }
+            sleeping = true;
+            if (inbox.isEmpty()) {
+                if (pending == 0) {
+                    LockSupport.park(this);
+                } else {
+                    LockSupport.parkNanos(this, nanosUntil(nextTick()));
+                }
+            }
+            sleeping = false;
+        }
+    }
+
+    private void drain() {
+        Entry entry;
+        while ((entry = inbox.poll()) != null) {
+            pending++;
+            insert(entry);
+        }
+    }
+
+    /**
+     * Process the given tick: cascade any level whose slot comes round, then expire the level 0 slot
+     */
+    private void advance(long tick) {
+        for (int level = 1; level < LEVELS && (tick & ((1L << (BITS * level)) - 1)) == 0; level++) {
+            int slot = (int) (tick >>> (BITS * level)) & MASK;
+            Entry entry = wheel[level][slot];
+            wheel[level][slot] = null;
+            reinsert(entry);
+            if (level == LEVELS - 1) {
+                entry = overflow;
+                overflow = null;
+                reinsert(entry);
+            }
+        }
+        int slot = (int) tick & MASK;
+        Entry entry = wheel[0][slot];
+        wheel[0][slot] = null;
+        reinsert(entry);
+    }
+
+    private void reinsert(Entry entry) {
+        while (entry != null) {
+            Entry next = entry.next;
+            entry.next = null;
+            insert(entry);
+            entry = next;
+        }
+    }
+
+    /**
+     * Insert the entry into the slot for its deadline, or expire it if its deadline has been reached
+     */
+    private void insert(Entry entry) {
+        long delta = entry.deadline - ticks;
+        if (delta <= 0) {
+            long again = expire(entry);
+            if (again < 0) {
+                pending--;
+                return;
+            }
+            entry.deadline = Math.max(again, ticks + 1);
+            delta = entry.deadline - ticks;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            if (delta < 1L << (BITS * (level + 1))) {
+                int slot = (int) (entry.deadline >>> (BITS * level)) & MASK;
+                entry.next = wheel[level][slot];
+                wheel[level][slot] = entry;
+                return;
+            }
+        }
+        entry.next = overflow;
+        overflow = entry;
+    }
+
+    private long expire(Entry entry) {
+        try {
+            return entry.expire(ticks);
+        } catch (RuntimeException e) {
+            return -1; // a failing entry mustn't stop the wheel
+        }
+    }
+
+    /**
+     * @return next tick that has entries due in level 0, or at which the next cascade happens
+     */
+    private long nextTick() {
+        long boundary = (ticks | MASK) + 1;
+        for (long tick = ticks + 1; tick < boundary; tick++) {
+            if (wheel[0][(int) tick & MASK] != null) {
+                return tick;
+            }
+        }
+        return boundary;
+    }
+}
@@ -0,0 +1,66 @@
+package com.github.stehrn.go;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Channels that receive the time once a delay has passed (equivalent to {@code time.After} and {@code time.NewTimer}
+ * in go), or every period ({@code time.NewTicker}), e.g. to give a whole loop of selects a deadline:
+ * <pre> {@code
+ * Channel<Instant> deadline = after(1, TimeUnit.SECONDS);
+ * while (running) {
+ *     select()
+ *         .onReceive(results, result -> process(result))
+ *         .onReceive(deadline, time -> running = false)
+ *         .run();
+ * }
+ * }</pre>
+ * Every timer is kept on one hierarchical timer wheel, driven by a single daemon thread with a resolution of a
+ * millisecond, so creating, stopping and firing a timer are all constant time and hundreds of thousands can be
+ * pending at once; a timer fires no earlier than its delay, and usually within a millisecond or so after. Tickers
+ * share the same wheel, rather than each having a routine sleeping in a loop.
+ */
+public final class Timers {
+
+    private Timers() {
+    }
+
+    /**
+     * @return channel the time is sent on once the delay has passed
+     */
+    public static Channel<Instant> after(long delay, TimeUnit unit) {
+        return newTimer(delay, unit).channel();
+    }
+
+    /**
+     * @return timer that sends the time on its channel once the delay has passed, unless stopped first
+     */
+    public static Timer newTimer(long delay, TimeUnit unit) {
+        return new Timer(delay, unit);
+    }
+
+    /**
+     * @return ticker that sends the time on its channel every period, until stopped
+     */
+    public static Ticker newTicker(long period, TimeUnit unit) {
+        return new Ticker(period, unit);
+    }
+
+    /**
+     * @return channel the time is sent on every period, for ever (equivalent to {@code time.Tick} in go)
+     */
+    public static Channel<Instant> tick(long period, TimeUnit unit) {
+        return newTicker(period, unit).channel();
+    }
+
+    static TimerWheel wheel() {
+        return Wheel.WHEEL;
+    }
+
+    /**
+     * Holder so the wheel thread is only started once a timer is first used
+     */
+    private static final class Wheel {
+        static final TimerWheel WHEEL = new TimerWheel("go-timer");
+    }
+}
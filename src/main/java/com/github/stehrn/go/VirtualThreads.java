@@ -0,0 +1,22 @@
+package com.github.stehrn.go;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Access to virtual threads, which need Java 21.
+ * <p>
+ * This is the fallback for older JVMs; a multi-release JAR carries a Java 21 version of this class (under
+ * {@code src/main/java21}) that the JVM picks up in its place.
+ */
+final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return executor starting a new virtual thread per task, or null if virtual threads are not available
+     */
+    static ExecutorService executor() {
+        return null;
+    }
+}
@@ -0,0 +1,152 @@
+package com.github.stehrn.go;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Wait for a collection of routines to finish, equivalent to a go {@code sync.WaitGroup}:
+ * <pre> {@code
+ * WaitGroup wg = new WaitGroup();
+ * for (Task task : tasks) {
+ *     wg.add(1);
+ *     go(() -> {
+ *         task.run();
+ *         wg.done();
+ *     });
+ * }
+ * wg.await();
+ * }</pre>
+ * Unlike a {@code CountDownLatch} the count doesn't need to be known up front, and the group can be reused once
+ * {@code await} has returned; as in go, an {@code add} that starts a new round must happen after every {@code await}
+ * of the previous round has returned.
+ * <p>
+ * The counter and the number of waiters are packed into a single atomic long, so {@code add} and {@code done} are a
+ * single atomic add, and only the {@code done} that takes the counter to zero with routines waiting goes on to wake
+ * them (waiters are parked on a lock-free stack).
+ */
+public final class WaitGroup {
+
+    private static final AtomicLongFieldUpdater<WaitGroup> STATE =
+            AtomicLongFieldUpdater.newUpdater(WaitGroup.class, "state");
+    private static final WaiterStack<WaitGroup> WAITERS = new WaiterStack<>(
+            AtomicReferenceFieldUpdater.newUpdater(WaitGroup.class, WaiterStack.Node.class, "waiters"));
+
+    /**
+     * Counter in the high 32 bits, number of waiters in the low 32 bits
+     */
+    private volatile long state;
+    private volatile WaiterStack.Node waiters;
+
+    /**
+     * Add delta, which may be negative, to the counter
+     *
+     * @throws IllegalStateException if counter goes negative
+     */
+    public void add(int delta) {
+        long state = STATE.addAndGet(this, (long) delta << 32);
+        int counter = (int) (state >> 32);
+        int waiting = (int) state;
+        if (counter < 0) {
+            throw new IllegalStateException("Negative WaitGroup counter");
+        }
+        if (counter > 0 || waiting == 0) {
+            return;
+        }
+        STATE.addAndGet(this, -waiting);
+        WAITERS.release(this, false);
+    }
+
+    /**
+     * Decrement the counter by one
+     */
+    public void done() {
+        add(-1);
+    }
+
+    /**
+     * Wait for the counter to reach zero
+     *
+     * @throws RoutineException if interrupted whilst waiting
+     */
+    public void await() {
+        await(Waiter.FOREVER);
+    }
+
+    /**
+     * Wait at most the given timeout for the counter to reach zero
+     *
+     * @return true if counter reached zero
+     * @throws RoutineException if interrupted whilst waiting
+     */
+    public boolean await(long timeout, TimeUnit unit) {
+        return await(Channel.nanos(timeout, unit));
+    }
+
+    /**
+     * @return current value of the counter
+     */
+    public int count() {
+        return (int) (state >> 32);
+    }
+
+    private boolean await(long nanos) {
+        if (count() == 0) {
+            return true;
+        }
+        Waiter waiter = WAITERS.push(this);
+        // only count as a waiter once on the stack, so the done that releases waiters is sure to find this one
+        for (;;) {
+            long state = this.state;
+            if ((int) (state >> 32) == 0) {
+                waiter.cancel();
+                WAITERS.unlinkCancelled(this);
+                return true;
+            }
+            if (STATE.compareAndSet(this, state, state + 1)) {
+                break;
+            }
+        }
+        if (!waiter.await(nanos)) {
+            WAITERS.unlinkCancelled(this);
+            boolean released = !uncount();
+            if (Thread.currentThread().isInterrupted()) {
+                throw new RoutineException("WaitGroup wait interrupted");
+            }
+            return released;
+        }
+        return true;
+    }
+
+    /**
+     * Take a waiter that gave up off the number of waiters, unless the counter has already reached zero, in which
+     * case the done that took it there has already taken every waiter off (and the wait is over anyway)
+     *
+     * @return false if the counter had reached zero
+     */
+    private boolean uncount() {
+        for (;;) {
+            long state = this.state;
+            if ((int) (state >> 32) == 0) {
+                return false;
+            }
+            if (STATE.compareAndSet(this, state, state - 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return number of routines counted as waiting
+     */
+    int waiters() {
+        return (int) state;
+    }
+
+    /**
+     * @return number of waiters on the stack, cancelled or not
+     */
+    int stacked() {
+        return WAITERS.size(this);
+    }
+}
@@ -0,0 +1,120 @@
+package com.github.stehrn.go;
+
+/**
+ * FIFO queue of parked senders or receivers of a channel, equivalent to the {@code sendq} and {@code recvq} of a go
+ * channel.
+ * <p>
+ * All mutation happens under the owning channel's lock; {@code size} is volatile so the lock-free fast paths can
+ * cheaply check whether there is anyone to wake.
+ */
+final class WaitQueue {
+
+    /**
+     * A waiter parked on a single operation of a channel
+     */
+    static final class Node {
+        final Waiter waiter;
+        final int index;
+        Object item;
+        boolean closed;
+        private Node prev;
+        private Node next;
+        private boolean queued;
+
+        Node(Waiter waiter, int index) {
+            this.waiter = waiter;
+            this.index = index;
+        }
+
+        Node(Waiter waiter, int index, Object item) {
+            this(waiter, index);
+            this.item = item;
+        }
+    }
+
+    private Node head;
+    private Node tail;
+    private volatile int size;
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void add(Node node) {
+        node.queued = true;
+        node.prev = tail;
+        if (tail == null) {
+            head = node;
+        } else {
+            tail.next = node;
+        }
+        tail = node;
+        size++;
+    }
+
+    void remove(Node node) {
+        if (!node.queued) {
+            return;
+        }
+        if (node.prev == null) {
+            head = node.next;
+        } else {
+            node.prev.next = node.next;
+        }
+        if (node.next == null) {
+            tail = node.prev;
+        } else {
+            node.next.prev = node.prev;
+        }
+        node.prev = node.next = null;
+        node.queued = false;
+        size--;
+    }
+
+    /**
+     * Remove and fire the first waiter that can still be fired, skipping waiters that have been cancelled or fired by
+     * another channel
+     *
+     * @return fired node, or null if there is no waiter left
+     */
+    Node fire() {
+        Node node;
+        while ((node = head) != null) {
+            remove(node);
+            if (node.waiter.fire(node.index)) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * As {@link #fire()}, but hands the given item to the waiter, the item is published by the firing CAS
+     */
+    Node fire(Object item) {
+        Node node;
+        while ((node = head) != null) {
+            remove(node);
+            node.item = item;
+            if (node.waiter.fire(node.index)) {
+                return node;
+            }
+            node.item = null;
+        }
+        return null;
+    }
+
+    /**
+     * Fire every waiter, marking its operation as closed
+     */
+    void close() {
+        Node node;
+        while ((node = head) != null) {
+            remove(node);
+            node.closed = true;
+            if (node.waiter.fire(node.index)) {
+                node.waiter.unpark();
+            }
+        }
+    }
+}
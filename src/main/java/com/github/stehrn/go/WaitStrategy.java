@@ -0,0 +1,161 @@
+package com.github.stehrn.go;
+
+/**
+ * How a routine waits for a channel operation to complete when it can't complete straight away, chosen when the
+ * channel is created:
+ * <pre> {@code
+ * Channel<Integer> court = channel(options().waitStrategy(busySpin()));
+ * }</pre>
+ * Parking and unparking a thread costs microseconds, which dominates a handoff between two routines that are both
+ * running; spinning instead trades CPU for latency:
+ * <ul>
+ * <li>{@link #blocking()} - park straight away, the default</li>
+ * <li>{@link #busySpin()} - never park, burning a core for the lowest latency; only use when routines have a core
+ * each (a spinning routine still yields every so often, so it can't lock out one that shares its processor)</li>
+ * <li>{@link #spinThenYield(int)} - spin a while, then keep yielding the processor rather than park</li>
+ * <li>{@link #spinThenPark()} - spin for about as long as recent waits have taken (up to a limit), then park; waits
+ * longer than the limit soon stop spinning at all</li>
+ * </ul>
+ * Timeouts and interrupts are honoured whilst spinning. A {@code Select} always parks.
+ */
+public abstract class WaitStrategy {
+
+    static final WaitStrategy BLOCKING = new Blocking();
+
+    WaitStrategy() {
+    }
+
+    public static WaitStrategy blocking() {
+        return BLOCKING;
+    }
+
+    public static WaitStrategy busySpin() {
+        return new Spinning(Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param spins number of times to spin before yielding
+     */
+    public static WaitStrategy spinThenYield(int spins) {
+        if (spins < 0) {
+            throw new IllegalArgumentException("Spins must not be negative: " + spins);
+        }
+        return new Spinning(spins);
+    }
+
+    public static WaitStrategy spinThenPark() {
+        return new Adaptive();
+    }
+
+    /**
+     * Wait until the waiter is fired, with the same contract as {@code Waiter.await}
+     *
+     * @param nanos timeout, or {@code Waiter.FOREVER}
+     * @return true if fired, false if cancelled
+     */
+    abstract boolean await(Waiter waiter, long nanos);
+
+    /**
+     * @return strategy for a new channel, a strategy holding state of its own must return a fresh copy
+     */
+    WaitStrategy forChannel() {
+        return this;
+    }
+
+    /**
+     * @return true if the calling routine has been interrupted or the deadline has passed
+     */
+    static boolean expired(long nanos, long deadline) {
+        return Thread.currentThread().isInterrupted() || Waiter.remaining(nanos, deadline) == 0;
+    }
+
+    private static final class Blocking extends WaitStrategy {
+        @Override
+        boolean await(Waiter waiter, long nanos) {
+            return waiter.await(nanos);
+        }
+    }
+
+    private static final class Spinning extends WaitStrategy {
+
+        private final int spins;
+
+        Spinning(int spins) {
+            this.spins = spins;
+        }
+
+        @Override
+        boolean await(Waiter waiter, long nanos) {
+            long deadline = Waiter.deadline(nanos);
+            for (int i = 0; waiter.state() == Waiter.WAITING; i++) {
+                if (i < spins) {
+                    SpinWait.onSpinWait();
+                    if ((i & 1023) == 1023) {
+                        Thread.yield(); // let a routine sharing the processor (or virtual thread carrier) run
+                    } else if ((i & 63) != 63) {
+                        continue;
+                    }
+                } else {
+                    Thread.yield();
+                }
+                if (expired(nanos, deadline)) {
+                    return !waiter.cancel();
+                }
+            }
+            return waiter.state() != Waiter.CANCELLED;
+        }
+    }
+
+    /**
+     * Spins for twice the moving average of recent waits on the channel, capped at {@code MAX_SPIN_NANOS}, and not at
+     * all once the average is above the cap, as spinning then only burns CPU before parking anyway. The average is
+     * volatile so every routine on the channel sees recent waits, but is updated without synchronisation: a racing
+     * update is lost, which is harmless as the average is only a heuristic
+     */
+    static final class Adaptive extends WaitStrategy {
+
+        private static final long MAX_SPIN_NANOS = 50_000;
+
+        private volatile long averageWait = MAX_SPIN_NANOS / 4;
+
+        @Override
+        boolean await(Waiter waiter, long nanos) {
+            long start = System.nanoTime();
+            long spinFor = spinNanos();
+            if (nanos != Waiter.FOREVER) {
+                spinFor = Math.min(spinFor, nanos);
+            }
+            boolean fired = true;
+            if (spinFor == 0) {
+                fired = waiter.await(nanos);
+            } else {
+                for (int i = 1; waiter.state() == Waiter.WAITING; i++) {
+                    SpinWait.onSpinWait();
+                    if ((i & 15) == 0 && (System.nanoTime() - start >= spinFor
+                            || Thread.currentThread().isInterrupted())) {
+                        long remaining = nanos == Waiter.FOREVER
+                                ? nanos : Math.max(0, nanos - (System.nanoTime() - start));
+                        fired = waiter.await(remaining);
+                        break;
+                    }
+                }
+            }
+            long average = averageWait;
+            averageWait = average + ((System.nanoTime() - start - average) >> 3);
+            return fired && waiter.state() != Waiter.CANCELLED;
+        }
+
+        /**
+         * @return how long the next wait spins before parking
+         */
+        long spinNanos() {
+            long average = averageWait;
+            return average > MAX_SPIN_NANOS ? 0 : Math.min(MAX_SPIN_NANOS, average * 2);
+        }
+
+        @Override
+        WaitStrategy forChannel() {
+            return new Adaptive();
+        }
+    }
+}
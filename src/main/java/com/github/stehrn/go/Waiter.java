@@ -0,0 +1,130 @@
+package com.github.stehrn.go;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A routine parked on one or more channel operations.
+ * <p>
+ * The waiter is <i>fired</i> exactly once, by whichever party completes one of its operations (or closes a channel it
+ * is waiting on), recording the index of the operation that completed. A waiter that gives up (interrupt or timeout) is
+ * cancelled instead, so a late attempt to fire it fails and the firing party simply moves on to the next waiter; a
+ * {@code Context} being cancelled cancels the waiters registered with it in the same way, and unparks them.
+ */
+final class Waiter {
+
+    static final int WAITING = -1;
+    static final int CANCELLED = -2;
+
+    /**
+     * Timeout meaning wait for as long as it takes
+     */
+    static final long FOREVER = -1;
+
+    private static final AtomicIntegerFieldUpdater<Waiter> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(Waiter.class, "state");
+
+    final Thread thread = Thread.currentThread();
+
+    private volatile int state = WAITING;
+
+    /**
+     * Fire this waiter for the operation at the given index, only one call to fire (or cancel) can ever succeed
+     *
+     * @param index index of operation that completed
+     * @return true if this call fired the waiter
+     */
+    boolean fire(int index) {
+        return STATE.compareAndSet(this, WAITING, index);
+    }
+
+    boolean cancel() {
+        return STATE.compareAndSet(this, WAITING, CANCELLED);
+    }
+
+    /**
+     * @return index of operation that fired this waiter, or {@code WAITING} / {@code CANCELLED}
+     */
+    int state() {
+        return state;
+    }
+
+    void unpark() {
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Park the calling thread until this waiter is fired, or until the thread is interrupted or the timeout elapses,
+     * in which case an attempt is made to cancel the waiter; the interrupt status of the thread is preserved.
+     *
+     * @param nanos timeout, or {@code FOREVER}
+     * @return true if fired, false if cancelled
+     */
+    boolean await(long nanos) {
+        if (Thread.currentThread() instanceof ForkJoinWorkerThread) {
+            return awaitManaged(nanos);
+        }
+        long deadline = deadline(nanos);
+        while (state == WAITING) {
+            if (nanos == FOREVER) {
+                LockSupport.park(this);
+            } else {
+                long remaining = remaining(nanos, deadline);
+                if (remaining <= 0) {
+                    return !cancel();
+                }
+                LockSupport.parkNanos(this, remaining);
+            }
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                return !cancel();
+            }
+        }
+        return state != CANCELLED;
+    }
+
+    /**
+     * As {@link #await(long)}, but parking through {@code ForkJoinPool.managedBlock}, so a fork join pool (such as
+     * the {@code WorkStealingScheduler}) can start another worker to keep its parallelism whilst this one is blocked
+     */
+    private boolean awaitManaged(long nanos) {
+        long deadline = deadline(nanos);
+        ForkJoinPool.ManagedBlocker blocker = new ForkJoinPool.ManagedBlocker() {
+            @Override
+            public boolean block() {
+                if (nanos == FOREVER) {
+                    LockSupport.park(Waiter.this);
+                } else {
+                    LockSupport.parkNanos(Waiter.this, remaining(nanos, deadline));
+                }
+                return isReleasable();
+            }
+
+            @Override
+            public boolean isReleasable() {
+                return state != WAITING || remaining(nanos, deadline) == 0 || Thread.currentThread().isInterrupted();
+            }
+        };
+        try {
+            ForkJoinPool.managedBlock(blocker);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return state != WAITING ? state != CANCELLED : !cancel();
+    }
+
+    static long deadline(long nanos) {
+        return nanos == FOREVER ? 0 : System.nanoTime() + nanos;
+    }
+
+    /**
+     * @param nanos    timeout the deadline was calculated from
+     * @param deadline deadline from {@link #deadline(long)}
+     * @return nanos left until deadline, or {@code FOREVER} for a timeout of {@code FOREVER}
+     */
+    static long remaining(long nanos, long deadline) {
+        return nanos == FOREVER ? FOREVER : Math.max(0, deadline - System.nanoTime());
+    }
+}
@@ -0,0 +1,116 @@
+package com.github.stehrn.go;
+
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Lock-free (Treiber) stack of parked routines, kept in a volatile field of its owner so an owner costs no extra
+ * object until a routine actually waits on it; one instance per owning class, wrapping the updater for that field.
+ * <p>
+ * A routine that gives up waiting (timeout or interrupt) cancels its {@code Waiter} and then calls
+ * {@link #unlinkCancelled(Object)}, so routines polling with a timed wait don't grow the stack. Unlinking follows
+ * {@code FutureTask.removeWaiter}: cancelled nodes are spliced out past their live predecessor, or popped with a CAS if
+ * at the top, and the walk restarts from the top whenever the predecessor turns out to have been cancelled too, or the
+ * CAS fails, as either means another unlink or a push raced with this one.
+ *
+ * @param <O> class owning the field holding the top of the stack
+ */
+final class WaiterStack<O> {
+
+    /**
+     * Top of a stack that has been released for good, later arrivals don't need to park
+     */
+    private static final Node RELEASED = new Node(null);
+
+    private final AtomicReferenceFieldUpdater<O, Node> top;
+
+    /**
+     * @param top updater for the owner's {@code volatile WaiterStack.Node} field
+     */
+    WaiterStack(AtomicReferenceFieldUpdater<O, Node> top) {
+        this.top = top;
+    }
+
+    /**
+     * Push a waiter for the calling routine, to park on once pushed
+     *
+     * @return the waiter, or null if the stack has been released for good
+     */
+    Waiter push(O owner) {
+        Node node = null;
+        for (;;) {
+            Node head = top.get(owner);
+            if (head == RELEASED) {
+                return null;
+            }
+            if (node == null) {
+                node = new Node(new Waiter());
+            }
+            node.next = head;
+            if (top.compareAndSet(owner, head, node)) {
+                return node.waiter;
+            }
+        }
+    }
+
+    /**
+     * Fire and unpark every waiter on the stack, skipping those that have given up
+     *
+     * @param forGood true if the stack is never used again, so later pushes fail, false to leave it empty for reuse
+     */
+    void release(O owner, boolean forGood) {
+        Node node = top.getAndSet(owner, forGood ? RELEASED : null);
+        for (; node != null && node != RELEASED; node = node.next) {
+            if (node.waiter.fire(0)) {
+                node.waiter.unpark();
+            }
+        }
+    }
+
+    boolean isReleased(O owner) {
+        return top.get(owner) == RELEASED;
+    }
+
+    /**
+     * Unlink every cancelled waiter from the stack
+     */
+    void unlinkCancelled(O owner) {
+        retry:
+        for (;;) {
+            Node pred = null;
+            for (Node node = top.get(owner), next; node != null && node != RELEASED; node = next) {
+                next = node.next;
+                if (node.waiter.state() != Waiter.CANCELLED) {
+                    pred = node;
+                } else if (pred != null) {
+                    pred.next = next;
+                    if (pred.waiter.state() == Waiter.CANCELLED) {
+                        continue retry;
+                    }
+                } else if (!top.compareAndSet(owner, node, next)) {
+                    continue retry;
+                }
+            }
+            return;
+        }
+    }
+
+    /**
+     * @return number of waiters on the stack, cancelled or not
+     */
+    int size(O owner) {
+        int n = 0;
+        for (Node node = top.get(owner); node != null && node != RELEASED; node = node.next) {
+            n++;
+        }
+        return n;
+    }
+
+    static final class Node {
+        final Waiter waiter;
+        volatile Node next;
+
+        Node(Waiter waiter) {
+            this.waiter = waiter;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.github.stehrn.go;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * Work-stealing routine scheduler, closer to how the go runtime schedules goroutines than a cached thread pool.
+ * <p>
+ * A fixed number of workers ({@code maxProcs}, equivalent to {@code GOMAXPROCS}) run routines, each from its own local
+ * run queue; a routine started from a worker goes on that worker's queue, and idle workers steal from busy ones. Queues
+ * are FIFO (async mode), so routines run in the order they were started.
+ * <p>
+ * When a routine parks in a channel operation the pool is told via {@code ForkJoinPool.managedBlock} (see
+ * {@code Waiter}), and starts a compensating worker if needed, so blocked routines can't starve runnable ones.
+ */
+final class WorkStealingScheduler extends ForkJoinPool {
+
+    WorkStealingScheduler(int maxProcs) {
+        super(maxProcs, defaultForkJoinWorkerThreadFactory, null, true);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        submit(task);
+    }
+
+    /**
+     * A {@code ForkJoinTask} is forked as is; any other task, i.e. every {@code RoutineHandle}, is wrapped in one. The
+     * wrapper is the one allocation the scheduler adds per routine, the same one {@code ForkJoinPool.execute} would
+     * make, and is short lived. The handle can't be a {@code ForkJoinTask} itself: its {@code void join()} clashes
+     * with the final {@code ForkJoinTask.join()}, and the handle would expose {@code fork}, {@code get} and the rest
+     * whichever scheduler is in use.
+     */
+    @Override
+    public ForkJoinTask<?> submit(Runnable task) {
+        ForkJoinTask<?> job = task instanceof ForkJoinTask ? (ForkJoinTask<?>) task : ForkJoinTask.adapt(task);
+        Thread thread = Thread.currentThread();
+        if (thread instanceof ForkJoinWorkerThread && ((ForkJoinWorkerThread) thread).getPool() == this) {
+            job.fork(); // local run queue
+        } else {
+            super.execute(job);
+        }
+        return job;
+    }
+}
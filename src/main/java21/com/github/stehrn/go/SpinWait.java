@@ -0,0 +1,15 @@
+package com.github.stehrn.go;
+
+/**
+ * Hint to the processor that the caller is busy-waiting, Java 21 version of this class carried in the multi-release
+ * JAR.
+ */
+final class SpinWait {
+
+    private SpinWait() {
+    }
+
+    static void onSpinWait() {
+        Thread.onSpinWait();
+    }
+}
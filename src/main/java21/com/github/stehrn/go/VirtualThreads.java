@@ -0,0 +1,20 @@
+package com.github.stehrn.go;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to virtual threads, Java 21 version of this class carried in the multi-release JAR.
+ */
+final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return executor starting a new virtual thread per task
+     */
+    static ExecutorService executor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+}
@@ -0,0 +1,236 @@
+package com.github.stehrn.go;
+
+import com.github.stehrn.go.Channel.ChannelResult;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.github.stehrn.go.Channel.channel;
+import static com.github.stehrn.go.Routine.go;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BufferedChannelTest {
+
+    @Test(timeout = 500)
+    public void sendAndReceiveWithoutBlocking() {
+        Channel<String> buffered = channel(3);
+        buffered.send("item 1");
+        buffered.send("item 2");
+        buffered.send("item 3");
+        assertThat(buffered.receive(), is("item 1"));
+        assertThat(buffered.receive(), is("item 2"));
+        assertThat(buffered.receive(), is("item 3"));
+    }
+
+    @Test(timeout = 1000)
+    public void sendBlocksWhenFull() throws InterruptedException {
+        Channel<String> buffered = channel(3);
+        buffered.send("item 1");
+        buffered.send("item 2");
+        buffered.send("item 3");
+
+        CountDownLatch latch = new CountDownLatch(1);
+        go(() -> {
+            buffered.send("item 4");
+            latch.countDown();
+        });
+
+        // confirm send is blocked
+        assertFalse(latch.await(200, TimeUnit.MILLISECONDS));
+
+        // make some space
+        assertThat(buffered.receive(), is("item 1"));
+        latch.await();
+    }
+
+    @Test(timeout = 1000)
+    public void receiveWithNoSend() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        Channel<String> buffered = channel(3);
+        go(() -> {
+            assertNull(buffered.receive());
+            latch.countDown();
+        });
+
+        // confirm we get nothing back
+        assertFalse(latch.await(200, TimeUnit.MILLISECONDS));
+
+        // now close channel
+        buffered.close();
+        // we expect to fall through to countdown
+        latch.await();
+    }
+
+    @Test(timeout = 5000)
+    public void multipleSendersAndReceivers() throws InterruptedException {
+        Channel<Integer> buffered = channel(5);
+        int routines = 4;
+        int count = 10_000;
+        AtomicLong sum = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(routines);
+        for (int r = 0; r < routines; r++) {
+            go(() -> {
+                for (int i = 1; i <= count; i++) {
+                    buffered.send(i);
+                }
+            });
+            go(() -> {
+                for (int i = 1; i <= count; i++) {
+                    sum.addAndGet(buffered.receive());
+                }
+                done.countDown();
+            });
+        }
+        done.await();
+        assertThat(sum.get(), is((long) routines * count * (count + 1) / 2));
+    }
+
+    @Test(timeout = 5000)
+    public void singleProducerSingleConsumerKeepsOrder() {
+        Channel<Integer> spsc = Channel.spsc(3);
+        int count = 100_000;
+        go(() -> {
+            for (int i = 0; i < count; i++) {
+                spsc.send(i);
+            }
+        });
+        for (int i = 0; i < count; i++) {
+            assertThat(spsc.receive(), is(i));
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void multipleProducersSingleConsumer() {
+        Channel<Integer> mpsc = Channel.mpsc(3);
+        int routines = 4;
+        int count = 10_000;
+        for (int r = 0; r < routines; r++) {
+            go(() -> {
+                for (int i = 1; i <= count; i++) {
+                    mpsc.send(i);
+                }
+            });
+        }
+        long sum = 0;
+        for (int i = 0; i < routines * count; i++) {
+            sum += mpsc.receive();
+        }
+        assertThat(sum, is((long) routines * count * (count + 1) / 2));
+    }
+
+    @Test(timeout = 500)
+    public void nullValueIsNotClosed() {
+        Channel<String> buffered = channel(2);
+        buffered.send(null);
+        buffered.send("item");
+
+        ChannelResult<String> result = new ChannelResult<>();
+        assertThat(buffered.result(result).isClosed(), is(false));
+        assertNull(result.result());
+        assertThat(buffered.result(result).isClosed(), is(false));
+        assertThat(result.result(), is("item"));
+
+        buffered.close();
+        assertThat(buffered.result(result).isClosed(), is(true));
+    }
+
+    @Test(timeout = 1000)
+    public void trySendAndTryReceive() {
+        Channel<String> buffered = channel(1);
+        assertNull(buffered.tryReceive());
+        assertThat(buffered.trySend("item 1"), is(true));
+        assertThat(buffered.trySend("item 2"), is(false));
+        assertThat(buffered.send("item 2", 50, TimeUnit.MILLISECONDS), is(false));
+        assertThat(buffered.tryReceive(), is("item 1"));
+        assertNull(buffered.receive(50, TimeUnit.MILLISECONDS));
+    }
+
+    @Test(timeout = 5000)
+    public void batchSendAndReceive() {
+        for (Channel<Integer> buffered : Arrays.<Channel<Integer>>asList(channel(8), Channel.spsc(8), Channel.mpsc(8),
+                channel())) {
+            Integer[] values = new Integer[1000];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = i;
+            }
+            go(() -> {
+                buffered.sendAll(values);
+                buffered.sendAll(Arrays.asList(1000, null));
+            });
+            List<Integer> received = new ArrayList<>();
+            Integer[] batch = new Integer[16];
+            while (received.size() < 1002) {
+                int n = buffered.receive(batch.length, batch);
+                received.addAll(Arrays.asList(batch).subList(0, n));
+            }
+            buffered.close();
+            assertThat(buffered.receive(batch.length, batch), is(-1));
+            List<Integer> expected = new ArrayList<>(Arrays.asList(values));
+            expected.addAll(Arrays.asList(1000, null));
+            assertThat(received, is(expected));
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void sendAllStopsOnceClosed() {
+        Channel<Integer> buffered = channel(4);
+        Integer[] values = new Integer[1_000_000];
+        Arrays.fill(values, 1);
+        RoutineHandle<Void> sender = go(() -> buffered.sendAll(values));
+        int received = 0;
+        while (received < 100) {
+            buffered.receive();
+            received++;
+        }
+        buffered.close();
+        while (buffered.receive() != null) {
+            received++;
+        }
+        // at most a full buffer, and the one batch the sender was adding as the channel closed
+        assertTrue("received " + received, received <= 108);
+        try {
+            sender.result();
+            fail("Expected sendAll to fail once closed");
+        } catch (ChannelException e) {
+            assertThat(e.getMessage(), is("Channel is closed"));
+        }
+    }
+
+    @Test(timeout = 1000)
+    public void drainTo() {
+        Channel<String> buffered = channel(4);
+        buffered.sendAll(new String[]{"a", null, "c"});
+        List<String> drained = new ArrayList<>();
+        assertThat(buffered.drainTo(drained, 2), is(2));
+        assertThat(buffered.drainTo(drained, 10), is(1));
+        assertThat(buffered.drainTo(drained, 10), is(0));
+        assertThat(drained, is(Arrays.asList("a", null, "c")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void drainToRejectsNegativeMax() {
+        channel(4).drainTo(new ArrayList<>(), -1);
+    }
+
+    @Test(timeout = 1000)
+    public void closeLeavesBufferedValuesToReceive() {
+        Channel<String> buffered = channel(3);
+        buffered.send("item 1");
+        buffered.send("item 2");
+        buffered.close();
+        assertThat(buffered.receive(), is("item 1"));
+        assertThat(buffered.result().result(), is("item 2"));
+        assertTrue(buffered.result().isClosed());
+        assertNull(buffered.receive());
+    }
+}
@@ -0,0 +1,65 @@
+package com.github.stehrn.go;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.github.stehrn.go.Channel.channel;
+import static com.github.stehrn.go.Routine.go;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class ChannelIterationTest {
+
+    @Test(timeout = 1000)
+    public void iterateUntilClosed() {
+        for (Channel<String> channel : Arrays.<Channel<String>>asList(channel(), channel(2))) {
+            go(() -> {
+                channel.sendAll(Arrays.asList("a", null, "c"));
+                channel.close();
+            });
+            List<String> received = new ArrayList<>();
+            for (String value : channel) {
+                received.add(value);
+            }
+            assertThat(received, is(Arrays.asList("a", null, "c")));
+        }
+    }
+
+    @Test(timeout = 1000)
+    public void forEachUntilClosed() {
+        Channel<Integer> channel = channel(4);
+        go(() -> {
+            channel.sendAll(new Integer[]{1, 2, 3});
+            channel.close();
+        });
+        List<Integer> received = new ArrayList<>();
+        channel.forEach(received::add);
+        assertThat(received, is(Arrays.asList(1, 2, 3)));
+    }
+
+    @Test(timeout = 5000)
+    public void parallelStream() {
+        Channel<Integer> channel = channel(64);
+        go(() -> {
+            for (int i = 1; i <= 10_000; i++) {
+                channel.send(i);
+            }
+            channel.close();
+        });
+        assertThat(channel.stream().parallel().mapToLong(Integer::longValue).sum(), is(50_005_000L));
+    }
+
+    @Test(timeout = 1000)
+    public void sequentialStreamKeepsOrder() {
+        Channel<Integer> channel = channel(8);
+        go(() -> {
+            channel.sendAll(Arrays.asList(1, 2, 3, 4, 5));
+            channel.close();
+        });
+        assertThat(channel.stream().map(i -> i * 2).collect(Collectors.toList()), is(Arrays.asList(2, 4, 6, 8, 10)));
+    }
+}
@@ -0,0 +1,153 @@
+package com.github.stehrn.go;
+
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.stehrn.go.Channel.channel;
+import static com.github.stehrn.go.Routine.go;
+import static com.github.stehrn.go.Select.select;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ContextTest {
+
+    @Test(timeout = 2000)
+    public void cancelWakesBlockedOperations() {
+        Context context = Context.background().withCancel();
+        Channel<Integer> unbuffered = channel();
+        Channel<Integer> buffered = channel(1);
+        Channel<Integer> other = channel();
+        WaitGroup started = new WaitGroup();
+        started.add(3);
+        RoutineHandle<?> send = go(() -> {
+            started.done();
+            unbuffered.send(context, 1);
+        });
+        RoutineHandle<?> receive = go(() -> {
+            started.done();
+            return buffered.receive(context);
+        });
+        RoutineHandle<?> routine = go(context, () -> {
+            started.done();
+            return other.receive(); // context bound by go
+        });
+        started.await();
+        assertFalse(send.join(20, TimeUnit.MILLISECONDS));
+        context.cancel();
+        for (RoutineHandle<?> handle : new RoutineHandle<?>[]{send, receive, routine}) {
+            try {
+                handle.result();
+                fail();
+            } catch (CancellationException e) {
+                assertThat(e.getMessage(), is("Context cancelled"));
+            }
+        }
+        assertThat(unbuffered.tryReceive(), is(nullValue()));
+        assertTrue(buffered.trySend(1)); // channels still usable
+    }
+
+    @Test(timeout = 2000)
+    public void cancelWakesManyWaiters() {
+        Context context = Context.background().withCancel();
+        Channel<Integer> channel = channel();
+        AtomicInteger cancelled = new AtomicInteger();
+        WaitGroup done = new WaitGroup();
+        for (int i = 0; i < 100; i++) {
+            done.add(1);
+            go(context, () -> {
+                try {
+                    channel.receive();
+                } catch (CancellationException e) {
+                    cancelled.incrementAndGet();
+                }
+                done.done();
+            });
+        }
+        assertFalse(done.await(20, TimeUnit.MILLISECONDS));
+        context.cancel();
+        done.await();
+        assertThat(cancelled.get(), is(100));
+    }
+
+    @Test(timeout = 2000)
+    public void childCancelledWithParent() {
+        Context parent = Context.background().withCancel();
+        Context child = parent.withCancel();
+        Context grandchild = child.withTimeout(1, TimeUnit.HOURS);
+        child.cancel();
+        assertTrue(grandchild.isCancelled());
+        assertFalse(parent.isCancelled());
+        parent.cancel();
+        assertTrue(parent.withCancel().isCancelled());
+        assertThat(parent.done().receive(), is(nullValue()));
+        Context.background().cancel();
+        assertFalse(Context.background().isCancelled());
+    }
+
+    @Test(timeout = 2000)
+    public void deadlineCancels() {
+        Context context = Context.background().withTimeout(20, TimeUnit.MILLISECONDS);
+        assertTrue(context.remaining(TimeUnit.MILLISECONDS) <= 20);
+        assertThat(context.done().receive(), is(nullValue()));
+        assertThat(context.reason(), is("Context deadline exceeded"));
+        try {
+            channel().receive(context);
+            fail();
+        } catch (CancellationException e) {
+            assertThat(e.getMessage(), is("Context deadline exceeded"));
+        }
+        assertThat(context.withTimeout(1, TimeUnit.HOURS).remaining(TimeUnit.MILLISECONDS), is(0L));
+    }
+
+    @Test(timeout = 5000)
+    public void cancelledContextNotHeldByItsDeadline() throws InterruptedException {
+        Context context = Context.background().withTimeout(1, TimeUnit.HOURS);
+        context.cancel();
+        WeakReference<Context> collected = new WeakReference<>(context);
+        context = null;
+        while (collected.get() != null) { // times out if the timer wheel still holds the context
+            System.gc();
+            Thread.sleep(10);
+        }
+    }
+
+    @Test(timeout = 2000)
+    public void selectAndRoutineNotStarted() {
+        Context context = Context.background().withTimeout(10, TimeUnit.MILLISECONDS);
+        RoutineHandle<?> handle = go(context, () -> select()
+                .onReceive(channel(), value -> fail())
+                .onReceive(channel(), value -> fail())
+                .run());
+        try {
+            handle.result();
+            fail();
+        } catch (CancellationException e) {
+            assertThat(e.getMessage(), is("Context deadline exceeded"));
+        }
+        AtomicBoolean ran = new AtomicBoolean();
+        handle = go(context, () -> ran.set(true));
+        handle.join();
+        assertFalse(ran.get());
+    }
+
+    @Test(timeout = 2000)
+    public void unrelatedRoutinesUnaffected() {
+        Context context = Context.background().withCancel();
+        Channel<Integer> channel = channel();
+        RoutineHandle<Integer> other = go(() -> channel.receive());
+        RoutineHandle<?> cancelled = go(context, () -> channel.receive());
+        context.cancel();
+        cancelled.join();
+        channel.send(1);
+        assertThat(other.result(), is(1));
+    }
+}
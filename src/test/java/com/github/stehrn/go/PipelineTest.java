@@ -0,0 +1,153 @@
+package com.github.stehrn.go;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import static com.github.stehrn.go.Channel.channel;
+import static com.github.stehrn.go.Pipeline.from;
+import static com.github.stehrn.go.Routine.go;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PipelineTest {
+
+    @Test(timeout = 5000)
+    public void stagesRunUntilSourceClosed() {
+        Channel<Integer> source = channel();
+        Channel<String> sink = channel(4);
+        from(source)
+                .map(i -> i * 2, 4).buffer(8)
+                .filter(i -> i % 3 != 0)
+                .map(String::valueOf)
+                .to(sink);
+        produce(source, 100);
+
+        List<String> received = new ArrayList<>();
+        sink.forEach(received::add); // sink closed once source closed and drained
+        List<String> expected = new ArrayList<>();
+        for (int i = 1; i <= 100; i++) {
+            if (i * 2 % 3 != 0) {
+                expected.add(String.valueOf(i * 2));
+            }
+        }
+        Collections.sort(received);
+        Collections.sort(expected);
+        assertThat(received, is(expected));
+    }
+
+    @Test(timeout = 5000)
+    public void orderedKeepsSourceOrder() {
+        Channel<Integer> source = channel(16);
+        Channel<Integer> sink = channel(16);
+        from(source)
+                .flatMap(i -> Arrays.asList(i, i), 4)
+                .filter(i -> i % 5 != 0, 3)
+                .map(i -> {
+                    if (i % 7 == 0) {
+                        Thread.yield(); // make some values slower than others
+                    }
+                    return i;
+                }, 4)
+                .ordered()
+                .to(sink);
+        produce(source, 500);
+
+        List<Integer> received = new ArrayList<>();
+        sink.forEach(received::add);
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 1; i <= 500; i++) {
+            if (i % 5 != 0) {
+                expected.add(i);
+                expected.add(i);
+            }
+        }
+        assertThat(received, is(expected));
+    }
+
+    @Test(timeout = 5000)
+    public void failingStageEndsPipelineAndReportsError() {
+        assertStageFailureReported(false);
+    }
+
+    @Test(timeout = 5000)
+    public void failingOrderedStageEndsPipelineAndReportsError() {
+        assertStageFailureReported(true);
+    }
+
+    @Test(timeout = 5000)
+    public void cancelClosesSourceAndSink() {
+        Channel<Integer> source = channel();
+        Channel<Integer> sink = channel();
+        Pipeline.Execution execution = from(source).map(i -> i, 2).to(sink);
+        assertTrue(execution.cancel());
+        sink.forEach(i -> {
+        });
+        try {
+            execution.join();
+            fail("Expected CancellationException");
+        } catch (CancellationException e) {
+            assertTrue(source.closed);
+        }
+    }
+
+    @Test
+    public void fusesAdjacentStagesWithSameParallelism() {
+        Channel<Integer> source = channel();
+        assertThat(from(source).map(i -> i + 1).filter(i -> i > 0).map(i -> i * 2).fusedStages(), is(1));
+        assertThat(from(source).map(i -> i + 1, 4).filter(i -> i > 0, 4).map(i -> i * 2).fusedStages(), is(2));
+        assertThat(from(source).map(i -> i + 1).buffer(0).filter(i -> i > 0).fusedStages(), is(2));
+    }
+
+    private static void assertStageFailureReported(boolean ordered) {
+        Channel<Integer> source = channel(); // unbuffered, so the producer would block forever if left waiting
+        Channel<Integer> sink = channel();
+        Pipeline<Integer> pipeline = from(source)
+                .map(i -> {
+                    if (i == 50) {
+                        throw new IllegalStateException("bad value: " + i);
+                    }
+                    return i;
+                }, 4).buffer(2)
+                .map(i -> i + 1);
+        Pipeline.Execution execution = (ordered ? pipeline.ordered() : pipeline).to(sink);
+        RoutineHandle<Void> producer = go(() -> {
+            for (int i = 1; ; i++) {
+                source.send(i); // throws once the pipeline has closed the source
+            }
+        });
+
+        List<Integer> received = new ArrayList<>();
+        sink.forEach(received::add); // sink closed once the pipeline failed
+        try {
+            execution.join();
+            fail("Expected stage failure");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), is("bad value: 50"));
+        }
+        assertTrue(execution.isDone());
+        assertFalse(received.contains(51)); // 50 never got through
+        try {
+            producer.result();
+            fail("Expected producer to stop");
+        } catch (ChannelException e) {
+            assertThat(e.getMessage(), is("Channel is closed"));
+        }
+    }
+
+    private static void produce(Channel<Integer> source, int count) {
+        go(() -> {
+            for (int i = 1; i <= count; i++) {
+                source.send(i);
+            }
+            source.close();
+        });
+    }
+}
@@ -0,0 +1,87 @@
+package com.github.stehrn.go;
+
+import com.github.stehrn.go.LongChannel.LongResult;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.stehrn.go.DoubleChannel.doubleChannel;
+import static com.github.stehrn.go.IntChannel.intChannel;
+import static com.github.stehrn.go.LongChannel.longChannel;
+import static com.github.stehrn.go.Routine.go;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertFalse;
+
+public class PrimitiveChannelTest {
+
+    @Test(timeout = 500)
+    public void sendAndReceive() {
+        LongChannel longs = longChannel(2);
+        longs.send(Long.MAX_VALUE);
+        longs.send(-1L);
+        assertThat(longs.receiveLong(), is(Long.MAX_VALUE));
+        assertThat(longs.receiveLong(), is(-1L));
+
+        IntChannel ints = intChannel(1);
+        ints.send(Integer.MIN_VALUE);
+        assertThat(ints.receiveInt(), is(Integer.MIN_VALUE));
+
+        DoubleChannel doubles = doubleChannel(1);
+        doubles.send(-0.5);
+        assertThat(doubles.receiveDouble(), is(-0.5));
+    }
+
+    @Test(timeout = 1000)
+    public void zeroIsNotClosed() throws InterruptedException {
+        LongChannel longs = longChannel(2);
+        LongResult result = new LongResult();
+        longs.send(0);
+
+        assertThat(longs.result(result).isClosed(), is(false));
+        assertThat(result.result(), is(0L));
+
+        CountDownLatch latch = new CountDownLatch(1);
+        go(() -> {
+            longs.result(result);
+            latch.countDown();
+        });
+        // confirm we get nothing back
+        assertFalse(latch.await(200, TimeUnit.MILLISECONDS));
+
+        longs.close();
+        latch.await();
+        assertThat(result.isClosed(), is(true));
+    }
+
+    @Test(timeout = 5000)
+    public void multipleSendersAndReceivers() throws InterruptedException {
+        LongChannel longs = longChannel(3);
+        int routines = 4;
+        int count = 10_000;
+        CountDownLatch done = new CountDownLatch(routines);
+        LongChannel sums = longChannel(routines);
+        for (int r = 0; r < routines; r++) {
+            go(() -> {
+                for (int i = 1; i <= count; i++) {
+                    longs.send(i);
+                }
+            });
+            go(() -> {
+                long sum = 0;
+                for (int i = 1; i <= count; i++) {
+                    sum += longs.receiveLong();
+                }
+                sums.send(sum);
+                done.countDown();
+            });
+        }
+        done.await();
+        long total = 0;
+        for (int r = 0; r < routines; r++) {
+            total += sums.receiveLong();
+        }
+        assertThat(total, is((long) routines * count * (count + 1) / 2));
+    }
+}
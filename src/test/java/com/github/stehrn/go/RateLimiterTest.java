@@ -0,0 +1,117 @@
+package com.github.stehrn.go;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.github.stehrn.go.Channel.channel;
+import static com.github.stehrn.go.ChannelOptions.options;
+import static com.github.stehrn.go.Routine.go;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RateLimiterTest {
+
+    @Test
+    public void burstThenLimited() {
+        RateLimiter limiter = RateLimiter.create(1, 3);
+        assertTrue(limiter.tryAcquire(2));
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertFalse(RateLimiter.create(1000, 3).tryAcquire(4));
+    }
+
+    @Test(timeout = 2000)
+    public void acquirePacesPermits() {
+        RateLimiter limiter = RateLimiter.create(1000);
+        long start = System.nanoTime();
+        for (int i = 0; i < 200; i++) {
+            limiter.acquire();
+        }
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(190));
+    }
+
+    @Test(timeout = 2000)
+    public void tryAcquireWithTimeout() {
+        RateLimiter limiter = RateLimiter.create(10);
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire(1, 10, TimeUnit.MILLISECONDS)); // next permit is 100ms away
+        assertTrue(limiter.tryAcquire(1, 200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void reservationDelays() {
+        RateLimiter limiter = RateLimiter.create(10);
+        assertThat(limiter.reserve(1).delay(TimeUnit.MILLISECONDS), is(0L));
+        RateLimiter.Reservation second = limiter.reserve(1);
+        assertTrue(second.delay(TimeUnit.MILLISECONDS) > 50);
+        assertTrue(limiter.reserve(1).delay(TimeUnit.MILLISECONDS) > 150);
+        assertTrue(second.cancel());
+        assertFalse(second.cancel());
+        assertTrue(limiter.reserve(1).delay(TimeUnit.MILLISECONDS) <= 200); // cancelled permit given back
+    }
+
+    @Test(timeout = 2000)
+    public void rateLimitedChannel() {
+        Channel<Integer> channel = channel(options().size(100).rateLimiter(RateLimiter.create(500)));
+        go(() -> {
+            for (int i = 0; i < 50; i++) {
+                channel.send(i);
+            }
+            channel.close();
+        });
+        long start = System.nanoTime();
+        int count = 0;
+        for (Integer ignored : channel) {
+            count++;
+        }
+        assertThat(count, is(50));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(90));
+    }
+
+    @Test
+    public void trySendOnRateLimitedChannel() {
+        RateLimiter limiter = RateLimiter.create(1, 2);
+        Channel<Integer> channel = channel(options().size(1).rateLimiter(limiter));
+        assertTrue(channel.trySend(1));
+        assertFalse(channel.trySend(2)); // buffer full, permit given back
+        channel.receive();
+        assertTrue(channel.trySend(3));
+        channel.receive();
+        assertFalse(channel.trySend(4)); // no permit left
+    }
+
+    @Test(timeout = 2000)
+    public void timedSendOnRateLimitedChannel() {
+        RateLimiter limiter = RateLimiter.create(1, 2);
+        Channel<Integer> channel = channel(options().size(1).rateLimiter(limiter));
+        assertTrue(channel.send(1, 10, TimeUnit.MILLISECONDS));
+        assertFalse(channel.send(2, 10, TimeUnit.MILLISECONDS)); // buffer full, permit given back
+        channel.receive();
+        assertTrue(channel.send(3, 10, TimeUnit.MILLISECONDS));
+        channel.receive();
+        assertFalse(channel.send(4, 10, TimeUnit.MILLISECONDS)); // no permit left
+    }
+
+    @Test(timeout = 2000)
+    public void blockedSendGivesPermitBackWhenClosedOrCancelled() {
+        RateLimiter limiter = RateLimiter.create(1, 3);
+        Channel<Integer> channel = channel(options().size(1).rateLimiter(limiter));
+        channel.send(1);
+
+        Context context = Context.background().withCancel();
+        RoutineHandle<Void> cancelled = go(() -> channel.send(context, 2));
+        assertFalse(cancelled.join(50, TimeUnit.MILLISECONDS)); // blocked, buffer full
+        context.cancel();
+        cancelled.join();
+
+        RoutineHandle<Void> closed = go(() -> channel.send(3));
+        assertFalse(closed.join(50, TimeUnit.MILLISECONDS));
+        channel.close();
+        closed.join();
+
+        assertTrue(limiter.tryAcquire(2)); // both blocked sends gave their permit back
+    }
+}
@@ -0,0 +1,108 @@
+package com.github.stehrn.go;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.stehrn.go.Channel.channel;
+import static com.github.stehrn.go.Routine.go;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RoutineHandleTest {
+
+    @Test(timeout = 2000)
+    public void resultOfCallable() {
+        Channel<Integer> numbers = channel();
+        RoutineHandle<Integer> sum = go(() -> numbers.receive() + numbers.receive());
+        numbers.send(1);
+        numbers.send(2);
+        assertThat(sum.result(), is(3));
+        assertTrue(sum.isDone());
+    }
+
+    @Test(timeout = 2000)
+    public void joinRunnable() {
+        int[] value = new int[1];
+        RoutineHandle<Void> handle = go(() -> {
+            value[0] = 1;
+        });
+        handle.join();
+        assertThat(value[0], is(1));
+    }
+
+    @Test(timeout = 2000)
+    public void joinTimesOut() {
+        Channel<String> never = channel();
+        RoutineHandle<String> handle = go(() -> never.receive());
+        assertFalse(handle.join(10, TimeUnit.MILLISECONDS));
+        assertFalse(handle.isDone());
+        never.send("done");
+        assertTrue(handle.join(1, TimeUnit.SECONDS));
+        assertThat(handle.result(), is("done"));
+    }
+
+    @Test(timeout = 2000)
+    public void timedOutJoinsAreUnlinked() {
+        Channel<String> never = channel();
+        RoutineHandle<String> handle = go(() -> never.receive());
+        for (int i = 0; i < 100; i++) {
+            assertFalse(handle.join(0, TimeUnit.MILLISECONDS));
+        }
+        assertThat(handle.joiners(), is(0));
+        handle.cancel();
+        handle.join();
+    }
+
+    @Test(timeout = 5000)
+    public void cancelAsRoutineStartsStillInterruptsIt() throws InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            RoutineHandle<Void> handle = RoutineHandle.of(() -> {
+                while (!Thread.currentThread().isInterrupted()) {
+                    Thread.yield();
+                }
+            });
+            Thread runner = new Thread(handle);
+            runner.start();
+            handle.cancel();
+            runner.join(1000);
+            assertFalse("routine cancelled but left running", runner.isAlive());
+        }
+    }
+
+    @Test(timeout = 2000, expected = CancellationException.class)
+    public void cancelInterruptsBlockedRoutine() {
+        Channel<String> never = channel();
+        RoutineHandle<String> handle = go(() -> never.receive());
+        assertTrue(handle.cancel());
+        handle.result();
+    }
+
+    @Test(timeout = 2000)
+    public void failureIsRethrown() {
+        RoutineHandle<Void> unchecked = go(() -> {
+            throw new IllegalStateException("unchecked");
+        });
+        RoutineHandle<Object> checked = go(() -> {
+            throw new IOException("checked");
+        });
+        try {
+            unchecked.result();
+            fail();
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), is("unchecked"));
+        }
+        try {
+            checked.result();
+            fail();
+        } catch (RoutineException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        assertFalse(checked.cancel());
+    }
+}
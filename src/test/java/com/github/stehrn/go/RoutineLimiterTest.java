@@ -0,0 +1,93 @@
+package com.github.stehrn.go;
+
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.stehrn.go.Channel.channel;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RoutineLimiterTest {
+
+    @Test(timeout = 5000)
+    public void blockingNeverExceedsLimit() {
+        RoutineLimiter limiter = RoutineLimiter.blocking(4);
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        WaitGroup wg = new WaitGroup();
+        for (int i = 0; i < 200; i++) {
+            wg.add(1);
+            limiter.go(() -> {
+                peak.accumulateAndGet(active.incrementAndGet(), Math::max);
+                Thread.yield();
+                active.decrementAndGet();
+                wg.done();
+            });
+        }
+        wg.await();
+        assertTrue(peak.get() <= 4);
+    }
+
+    @Test(timeout = 2000)
+    public void callerRunsAtLimit() {
+        RoutineLimiter limiter = RoutineLimiter.callerRuns(1);
+        Channel<String> block = channel();
+        limiter.go(() -> block.receive());
+        Thread caller = Thread.currentThread();
+        RoutineHandle<Boolean> handle = limiter.go(() -> Thread.currentThread() == caller);
+        assertTrue(handle.isDone());
+        assertTrue(handle.result());
+        block.send("done");
+    }
+
+    @Test(timeout = 2000, expected = RejectedExecutionException.class)
+    public void rejectingAtLimit() {
+        RoutineLimiter limiter = RoutineLimiter.rejecting(1);
+        Channel<String> block = channel();
+        limiter.go(() -> block.receive());
+        try {
+            limiter.go(() -> {
+            });
+        } finally {
+            block.send("done");
+        }
+    }
+
+    @Test(timeout = 2000)
+    public void sheddingOldestCancelsOldestQueued() {
+        RoutineLimiter limiter = RoutineLimiter.sheddingOldest(1, 2);
+        Channel<String> block = channel();
+        limiter.go(() -> block.receive());
+        RoutineHandle<Integer> first = limiter.go(() -> 1);
+        RoutineHandle<Integer> second = limiter.go(() -> 2);
+        RoutineHandle<Integer> third = limiter.go(() -> 3);
+        assertFalse(second.isDone());
+        block.send("done");
+        assertThat(second.result(), is(2));
+        assertThat(third.result(), is(3));
+        try {
+            first.result();
+            fail();
+        } catch (CancellationException expected) {
+        }
+        assertTrue(waitForIdle(limiter));
+    }
+
+    private static boolean waitForIdle(RoutineLimiter limiter) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (limiter.running() != 0) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.yield();
+        }
+        return true;
+    }
+}
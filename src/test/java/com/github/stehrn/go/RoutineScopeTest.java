@@ -0,0 +1,135 @@
+package com.github.stehrn.go;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.stehrn.go.Channel.channel;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RoutineScopeTest {
+
+    @Test(timeout = 2000)
+    public void collectResults() {
+        try (RoutineScope scope = RoutineScope.open()) {
+            RoutineHandle<Integer> one = scope.go(() -> 1);
+            RoutineHandle<String> two = scope.go(() -> "two");
+            scope.join();
+            assertThat(one.result(), is(1));
+            assertThat(two.result(), is("two"));
+            List<Callable<Integer>> tasks = Arrays.asList(() -> 1, () -> 2, () -> 3);
+            assertThat(scope.invokeAll(tasks), is(Arrays.asList(1, 2, 3)));
+        }
+    }
+
+    @Test(timeout = 2000)
+    public void failureCancelsSiblings() {
+        Channel<Integer> never = channel();
+        AtomicInteger gaveUp = new AtomicInteger();
+        IllegalStateException failure = new IllegalStateException("downstream unavailable");
+        WaitGroup started = new WaitGroup();
+        try (RoutineScope scope = RoutineScope.open()) {
+            for (int i = 0; i < 10; i++) {
+                started.add(1);
+                scope.go(() -> {
+                    started.done();
+                    try {
+                        never.receive();
+                    } catch (CancellationException e) {
+                        gaveUp.incrementAndGet();
+                        throw e;
+                    }
+                });
+            }
+            started.await();
+            scope.go(() -> {
+                throw failure;
+            });
+            try {
+                scope.join();
+                fail();
+            } catch (IllegalStateException e) {
+                assertThat(e, is(failure));
+            }
+            assertTrue(scope.context().isCancelled());
+        }
+        assertThat(gaveUp.get(), is(10));
+    }
+
+    @Test(timeout = 2000)
+    public void checkedFailureWrapped() {
+        try (RoutineScope scope = RoutineScope.open()) {
+            scope.go(() -> {
+                throw new Exception("checked");
+            });
+            scope.join();
+            fail();
+        } catch (RoutineException e) {
+            assertThat(e.getCause().getMessage(), is("checked"));
+        }
+    }
+
+    @Test(timeout = 2000)
+    public void deadline() {
+        Channel<Integer> never = channel();
+        try (RoutineScope scope = RoutineScope.open(20, TimeUnit.MILLISECONDS)) {
+            scope.go(() -> never.receive());
+            scope.join();
+            fail();
+        } catch (CancellationException e) {
+            assertThat(e.getMessage(), is("Context deadline exceeded"));
+        }
+    }
+
+    @Test(timeout = 2000)
+    public void closeWithoutJoinLeavesNoRoutinesBehind() {
+        Channel<Integer> never = channel();
+        RoutineHandle<?> handle;
+        try (RoutineScope scope = RoutineScope.open()) {
+            handle = scope.go(() -> never.receive());
+        }
+        assertTrue(handle.isDone());
+        RoutineScope scope = RoutineScope.open();
+        scope.close();
+        try {
+            scope.go(() -> 1);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test(timeout = 2000)
+    public void nestedScopeCancelledWithOuter() {
+        AtomicBoolean innerCancelled = new AtomicBoolean();
+        WaitGroup started = new WaitGroup();
+        started.add(1);
+        try (RoutineScope outer = RoutineScope.open()) {
+            outer.go(() -> {
+                try (RoutineScope inner = RoutineScope.open()) {
+                    inner.go(() -> {
+                        started.done();
+                        return channel().receive();
+                    });
+                    inner.join();
+                } catch (CancellationException e) {
+                    innerCancelled.set(true);
+                }
+            });
+            started.await();
+            assertFalse(outer.context().isCancelled());
+            outer.cancel();
+            outer.join(); // the outer routine handled the cancellation itself
+        }
+        assertTrue(innerCancelled.get());
+    }
+}
@@ -0,0 +1,46 @@
+package com.github.stehrn.go;
+
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static com.github.stehrn.go.RoutineThreadFactory.parseSize;
+import static com.github.stehrn.go.RoutineThreadFactory.threads;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertTrue;
+
+public class RoutineThreadFactoryTest {
+
+    @Test
+    public void configuresThreads() {
+        Thread thread = threads().stackSize(256 * 1024).daemon(true).name("small-").newThread(() -> {
+        });
+        assertThat(thread.getName(), is("small-1"));
+        assertTrue(thread.isDaemon());
+    }
+
+    @Test(timeout = 2000)
+    public void runsRoutinesOnSmallStacks() throws Exception {
+        ExecutorService executor = threads().stackSize(128 * 1024).daemon(true).name("small-").executor();
+        try {
+            Future<String> name = executor.submit(() -> Thread.currentThread().getName());
+            assertTrue(name.get().startsWith("small-"));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void parsesSizes() {
+        assertThat(parseSize("0"), is(0L));
+        assertThat(parseSize("200k"), is(200L * 1024));
+        assertThat(parseSize("1M"), is(1024L * 1024));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidSize() {
+        parseSize("big");
+    }
+}
@@ -0,0 +1,117 @@
+package com.github.stehrn.go;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.stehrn.go.Channel.channel;
+import static com.github.stehrn.go.Routine.go;
+import static com.github.stehrn.go.Select.select;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertTrue;
+
+public class SelectTest {
+
+    @Test(timeout = 1000)
+    public void receiveFromWhicheverIsReady() {
+        Channel<String> a = channel();
+        Channel<String> b = channel();
+        List<String> received = new ArrayList<>();
+        go(() -> b.send("b"));
+        select()
+                .onReceive(a, value -> received.add("a:" + value))
+                .onReceive(b, value -> received.add("b:" + value))
+                .run();
+        assertThat(received.toString(), is("[b:b]"));
+    }
+
+    @Test(timeout = 1000)
+    public void sendToWhicheverIsReady() {
+        Channel<String> a = channel(1);
+        Channel<String> b = channel();
+        a.send("full");
+        List<String> sent = new ArrayList<>();
+        go(() -> b.receive());
+        select()
+                .onSend(a, "a", () -> sent.add("a"))
+                .onSend(b, "b", () -> sent.add("b"))
+                .run();
+        assertThat(sent.toString(), is("[b]"));
+    }
+
+    @Test(timeout = 1000)
+    public void defaultAndTimeout() {
+        Channel<String> a = channel();
+        List<String> ran = new ArrayList<>();
+        select().onReceive(a, ran::add).orDefault(() -> ran.add("default")).run();
+        select().onReceive(a, ran::add).orTimeout(50, TimeUnit.MILLISECONDS, () -> ran.add("timeout")).run();
+        assertThat(ran.toString(), is("[default, timeout]"));
+    }
+
+    @Test(timeout = 1000)
+    public void closeWakesReceive() {
+        Channel<String> a = channel();
+        Channel<String> b = channel(1);
+        List<Boolean> closed = new ArrayList<>();
+        go(b::close);
+        select()
+                .onResult(a, result -> closed.add(false))
+                .onResult(b, result -> closed.add(result.isClosed()))
+                .run();
+        assertThat(closed.toString(), is("[true]"));
+    }
+
+    @Test(timeout = 5000)
+    public void picksRandomlyAmongReadyCases() {
+        Channel<Integer> a = channel(1000);
+        Channel<Integer> b = channel(1000);
+        AtomicInteger fromA = new AtomicInteger();
+        Select select = select()
+                .onReceive(a, value -> fromA.incrementAndGet())
+                .onReceive(b, value -> {
+                });
+        for (int i = 0; i < 1000; i++) {
+            a.send(i);
+            b.send(i);
+        }
+        for (int i = 0; i < 1000; i++) {
+            select.run();
+        }
+        assertTrue(fromA.get() > 400 && fromA.get() < 600);
+    }
+
+    @Test(timeout = 5000)
+    public void manySelectsAgainstManySenders() throws InterruptedException {
+        Channel<Integer> a = channel();
+        Channel<Integer> b = channel(3);
+        int count = 10_000;
+        for (int r = 0; r < 2; r++) {
+            go(() -> {
+                for (int i = 0; i < count; i++) {
+                    a.send(1);
+                    b.send(1);
+                }
+            });
+        }
+        AtomicInteger total = new AtomicInteger();
+        Channel<Boolean> done = channel(2);
+        for (int r = 0; r < 2; r++) {
+            go(() -> {
+                Select select = select()
+                        .onReceive(a, total::addAndGet)
+                        .onReceive(b, total::addAndGet);
+                for (int i = 0; i < 2 * count; i++) {
+                    select.run();
+                }
+                done.send(true);
+            });
+        }
+        done.receive();
+        done.receive();
+        assertThat(total.get(), is(4 * count));
+    }
+}
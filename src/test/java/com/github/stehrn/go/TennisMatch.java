@@ -1,7 +1,5 @@
 package com.github.stehrn.go;
 
-import com.github.stehrn.go.Channel.ChannelResult;
-
 import java.util.concurrent.ThreadLocalRandom;
 
 import static com.github.stehrn.go.Channel.channel;
@@ -23,27 +21,21 @@ public class TennisMatch {
     }
 
     private void player(String name, Channel<Integer> court) {
-        while (true) {
-            // wait for ball to be hit to us
-            ChannelResult<Integer> result = court.result();
-            if (result.isClosed()) {
-                System.out.println("Player " + name + " won");
-                break;
-            }
-
+        // wait for ball to be hit to us, until the other player misses and closes the court
+        for (int ball : court) {
             // see if we miss the ball
             if (ThreadLocalRandom.current().nextInt(100) % 13 == 0) {
                 System.out.println("Player " + name + " missed");
                 court.close();
-                break;
+                return;
             }
 
-            int ball = result.result();
             System.out.println("Player " + name + " hit ball " + ball);
 
             // hit the ball back
             court.send(++ball);
         }
+        System.out.println("Player " + name + " won");
     }
 
     private void rain() {
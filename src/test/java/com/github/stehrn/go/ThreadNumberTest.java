@@ -2,7 +2,6 @@ package com.github.stehrn.go;
 
 import java.io.IOException;
 import java.util.Scanner;
-import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
@@ -41,18 +40,19 @@ public class ThreadNumberTest {
     private void createSetNumberOfThreads() throws InterruptedException {
         long start = System.currentTimeMillis();
 
-        final CountDownLatch latch = new CountDownLatch(threadCount);
+        final WaitGroup wg = new WaitGroup();
 
         try {
             for (int i = 0; i < threadCount; i++) {
+                wg.add(1);
                 go(() -> {
                     incrementCount();
                     payload.run();
-                    latch.countDown();
+                    wg.done();
                 });
             }
         } finally {
-            latch.await();
+            wg.await();
             System.out.println("Ending test, got to: " + count.intValue());
             long end = System.currentTimeMillis();
             System.out.println("Test took: " + (end - start) + " ms");
@@ -0,0 +1,93 @@
+package com.github.stehrn.go;
+
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.stehrn.go.Timers.after;
+import static com.github.stehrn.go.Timers.newTicker;
+import static com.github.stehrn.go.Timers.newTimer;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.notNullValue;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TimersTest {
+
+    @Test(timeout = 2000)
+    public void afterFiresOnceDelayHasPassed() {
+        for (long delay : new long[]{0, 5, 20, 150}) { // 150ms cascades down from the second level
+            long start = System.nanoTime();
+            Instant time = after(delay, TimeUnit.MILLISECONDS).receive();
+            assertThat(time, is(notNullValue()));
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(delay));
+        }
+    }
+
+    @Test(timeout = 2000)
+    public void stoppedTimerNeverFires() {
+        Timer timer = newTimer(20, TimeUnit.MILLISECONDS);
+        assertTrue(timer.stop());
+        assertFalse(timer.stop());
+        assertThat(timer.channel().receive(100, TimeUnit.MILLISECONDS), is(nullValue()));
+    }
+
+    @Test(timeout = 2000)
+    public void resetTimer() {
+        Timer timer = newTimer(1, TimeUnit.HOURS);
+        assertTrue(timer.reset(10, TimeUnit.MILLISECONDS));
+        assertThat(timer.channel().receive(), is(notNullValue()));
+        assertFalse(timer.stop());
+        assertFalse(timer.reset(10, TimeUnit.MILLISECONDS));
+        assertThat(timer.channel().receive(), is(notNullValue()));
+    }
+
+    @Test(timeout = 5000)
+    public void manyTimers() {
+        List<Channel<Instant>> channels = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            channels.add(after(i % 200, TimeUnit.MILLISECONDS));
+        }
+        for (Channel<Instant> channel : channels) {
+            assertThat(channel.receive(), is(notNullValue()));
+        }
+    }
+
+    @Test(timeout = 2000)
+    public void tickerTicksEveryPeriod() {
+        Ticker ticker = newTicker(10, TimeUnit.MILLISECONDS);
+        long start = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            assertThat(ticker.channel().receive(), is(notNullValue()));
+        }
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+        ticker.stop();
+    }
+
+    @Test(timeout = 2000)
+    public void slowReceiverGetsOneTick() throws InterruptedException {
+        Ticker ticker = newTicker(5, TimeUnit.MILLISECONDS);
+        Thread.sleep(100);
+        ticker.stop();
+        assertThat(ticker.channel().tryReceive(), is(notNullValue()));
+        assertThat(ticker.channel().tryReceive(), is(nullValue())); // missed ticks were dropped, not queued
+    }
+
+    @Test(timeout = 2000)
+    public void stoppedTickerStopsTicking() throws InterruptedException {
+        Ticker ticker = newTicker(5, TimeUnit.MILLISECONDS);
+        ticker.channel().receive();
+        ticker.stop();
+        Thread.sleep(10); // let a tick already being sent land
+        ticker.channel().tryReceive();
+        assertThat(ticker.channel().receive(50, TimeUnit.MILLISECONDS), is(nullValue()));
+        ticker.reset(5, TimeUnit.MILLISECONDS);
+        assertThat(ticker.channel().receive(), is(notNullValue()));
+        ticker.stop();
+    }
+}
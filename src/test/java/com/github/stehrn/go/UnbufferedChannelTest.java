@@ -4,6 +4,7 @@ import com.github.stehrn.go.Channel.ChannelResult;
 import org.junit.Test;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
@@ -204,4 +205,35 @@ public class UnbufferedChannelTest {
         }
         assertThat(results.toString(), is("[A, B, C]"));
     }
+
+    @Test(timeout = 1000)
+    public void timedSendAndReceive() {
+        Channel<String> unbounded = channel();
+        assertThat(unbounded.trySend("item"), is(false));
+        assertThat(unbounded.send("item", 50, TimeUnit.MILLISECONDS), is(false));
+
+        ChannelResult<String> result = new ChannelResult<>();
+        assertThat(unbounded.receive(result, 50, TimeUnit.MILLISECONDS), is(false));
+
+        go(() -> unbounded.send("item"));
+        assertThat(unbounded.receive(result, 500, TimeUnit.MILLISECONDS), is(true));
+        assertThat(result.result(), is("item"));
+
+        unbounded.close();
+        assertThat(unbounded.tryReceive(result), is(true));
+        assertThat(result.isClosed(), is(true));
+    }
+
+    @Test(timeout = 1000)
+    public void asyncSendAndReceive() throws Exception {
+        List<Runnable> work = Collections.synchronizedList(new ArrayList<>());
+        Channel<String> unbounded = channel(ChannelOptions.options().executor(r -> {
+            work.add(r);
+            go(r);
+        }));
+        CompletableFuture<ChannelResult<String>> received = unbounded.receiveAsync();
+        unbounded.sendAsync("item").get();
+        assertThat(received.get().result(), is("item"));
+        assertFalse(work.isEmpty());
+    }
 }
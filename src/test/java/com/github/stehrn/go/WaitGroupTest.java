@@ -0,0 +1,79 @@
+package com.github.stehrn.go;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.stehrn.go.Routine.go;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WaitGroupTest {
+
+    @Test(timeout = 2000)
+    public void awaitAllRoutines() {
+        WaitGroup wg = new WaitGroup();
+        AtomicInteger count = new AtomicInteger();
+        for (int round = 1; round <= 3; round++) {
+            for (int i = 0; i < 100; i++) {
+                wg.add(1);
+                go(() -> {
+                    count.incrementAndGet();
+                    wg.done();
+                });
+            }
+            wg.await(); // reused each round
+            assertThat(count.get(), is(round * 100));
+        }
+    }
+
+    @Test(timeout = 2000)
+    public void severalWaiters() {
+        WaitGroup wg = new WaitGroup();
+        WaitGroup waiting = new WaitGroup();
+        wg.add(1);
+        for (int i = 0; i < 4; i++) {
+            waiting.add(1);
+            go(() -> {
+                wg.await();
+                waiting.done();
+            });
+        }
+        assertFalse(waiting.await(10, TimeUnit.MILLISECONDS));
+        wg.done();
+        waiting.await();
+    }
+
+    @Test(timeout = 2000)
+    public void awaitTimesOut() {
+        WaitGroup wg = new WaitGroup();
+        assertTrue(wg.await(0, TimeUnit.MILLISECONDS));
+        wg.add(2);
+        assertFalse(wg.await(10, TimeUnit.MILLISECONDS));
+        wg.done();
+        wg.done();
+        assertTrue(wg.await(0, TimeUnit.MILLISECONDS));
+        assertThat(wg.count(), is(0));
+    }
+
+    @Test(timeout = 2000)
+    public void timedOutAwaitsAreUncounted() {
+        WaitGroup wg = new WaitGroup();
+        wg.add(1);
+        for (int i = 0; i < 100; i++) {
+            assertFalse(wg.await(0, TimeUnit.MILLISECONDS));
+        }
+        assertThat(wg.waiters(), is(0));
+        assertThat(wg.stacked(), is(0));
+        wg.done();
+        assertTrue(wg.await(0, TimeUnit.MILLISECONDS));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void negativeCounter() {
+        new WaitGroup().done();
+    }
+}
@@ -0,0 +1,73 @@
+package com.github.stehrn.go;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.github.stehrn.go.Channel.channel;
+import static com.github.stehrn.go.ChannelOptions.options;
+import static com.github.stehrn.go.Routine.go;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class WaitStrategyTest {
+
+    @Test(timeout = 5000)
+    public void busySpin() {
+        pingPong(WaitStrategy.busySpin(), 0);
+        pingPong(WaitStrategy.busySpin(), 1);
+    }
+
+    @Test(timeout = 5000)
+    public void spinThenYield() {
+        pingPong(WaitStrategy.spinThenYield(100), 0);
+        pingPong(WaitStrategy.spinThenYield(100), 1);
+    }
+
+    @Test(timeout = 5000)
+    public void spinThenPark() {
+        pingPong(WaitStrategy.spinThenPark(), 0);
+        pingPong(WaitStrategy.spinThenPark(), 1);
+    }
+
+    @Test(timeout = 2000)
+    public void spinningHonoursTimeoutAndClose() {
+        for (WaitStrategy strategy : new WaitStrategy[]{WaitStrategy.busySpin(), WaitStrategy.spinThenPark()}) {
+            Channel<String> channel = channel(options().waitStrategy(strategy));
+            assertFalse(channel.send("late", 10, TimeUnit.MILLISECONDS));
+            go(channel::close);
+            assertNull(channel.receive());
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void spinThenParkStopsSpinningOnceWaitsAreLong() {
+        WaitStrategy.Adaptive strategy = (WaitStrategy.Adaptive) WaitStrategy.spinThenPark();
+        assertTrue(strategy.spinNanos() > 0);
+        for (int i = 0; i < 32; i++) {
+            assertFalse(strategy.await(new Waiter(), TimeUnit.MILLISECONDS.toNanos(1))); // nothing fires it
+        }
+        assertThat(strategy.spinNanos(), is(0L));
+    }
+
+    private static void pingPong(WaitStrategy strategy, int size) {
+        Channel<Integer> ping = channel(options().size(size).waitStrategy(strategy));
+        Channel<Integer> pong = channel(options().size(size).waitStrategy(strategy));
+        go(() -> {
+            Integer ball;
+            while ((ball = ping.receive()) != null) {
+                pong.send(ball + 1);
+            }
+        });
+        int ball = 0;
+        for (int i = 0; i < 1000; i++) {
+            ping.send(ball);
+            ball = pong.receive();
+        }
+        ping.close();
+        assertThat(ball, is(1000));
+    }
+}
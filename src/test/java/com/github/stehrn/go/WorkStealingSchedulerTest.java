@@ -0,0 +1,122 @@
+package com.github.stehrn.go;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.stehrn.go.Channel.channel;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertTrue;
+
+public class WorkStealingSchedulerTest {
+
+    @Test(timeout = 2000)
+    public void blockedRoutineDoesNotStarveOthers() throws InterruptedException {
+        WorkStealingScheduler scheduler = new WorkStealingScheduler(1);
+        Channel<Integer> ping = channel();
+        Channel<Integer> pong = channel();
+        CountDownLatch done = new CountDownLatch(1);
+        int[] last = new int[1];
+
+        // with a single worker, the first routine parking in receive must not stop the second from running
+        scheduler.execute(() -> {
+            for (int i = 0; i < 100; i++) {
+                pong.send(ping.receive() + 1);
+            }
+        });
+        scheduler.execute(() -> {
+            int ball = 0;
+            for (int i = 0; i < 100; i++) {
+                ping.send(ball);
+                ball = pong.receive();
+            }
+            last[0] = ball;
+            done.countDown();
+        });
+
+        done.await();
+        assertThat(last[0], is(100));
+        scheduler.shutdown();
+    }
+
+    @Test(timeout = 2000)
+    public void routineStartedFromWorkerGoesOnItsLocalQueue() throws InterruptedException {
+        WorkStealingScheduler scheduler = new WorkStealingScheduler(1);
+        CountDownLatch done = new CountDownLatch(1);
+        int[] queued = new int[2];
+
+        scheduler.execute(() -> {
+            scheduler.execute(done::countDown);
+            queued[0] = ForkJoinTask.getQueuedTaskCount(); // this worker's local queue
+            queued[1] = scheduler.getQueuedSubmissionCount(); // the shared submission queue
+        });
+
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertThat(queued[0], is(1));
+        assertThat(queued[1], is(0));
+        scheduler.shutdown();
+    }
+
+    @Test(timeout = 2000)
+    public void forkJoinTaskIsForkedWithoutWrapping() {
+        WorkStealingScheduler scheduler = new WorkStealingScheduler(1);
+        ForkJoinTask<?> task = ForkJoinTask.adapt(() -> {
+        });
+        assertThat(scheduler.submit((Runnable) task), is(sameInstance(task)));
+        task.join();
+        scheduler.shutdown();
+    }
+
+    @Test(timeout = 2000)
+    public void idleWorkerStealsFromBusyOne() throws InterruptedException {
+        WorkStealingScheduler scheduler = new WorkStealingScheduler(2);
+        CountDownLatch stolen = new CountDownLatch(1);
+        Thread[] threads = new Thread[2];
+
+        ForkJoinTask<Boolean> busy = scheduler.submit(() -> {
+            threads[0] = Thread.currentThread();
+            scheduler.execute(() -> {
+                threads[1] = Thread.currentThread();
+                stolen.countDown();
+            });
+            // keep this worker busy, so the routine it forked can only run if the other worker steals it
+            return stolen.await(1, TimeUnit.SECONDS);
+        });
+
+        assertTrue("forked routine not stolen", busy.join()); // checked here, as a failure in a worker is swallowed
+        assertThat(threads[1], is(not(threads[0])));
+        scheduler.shutdown();
+    }
+
+    @Test(timeout = 2000)
+    public void channelWaitsCompensateRatherThanStarvePool() throws InterruptedException {
+        WorkStealingScheduler scheduler = new WorkStealingScheduler(2);
+        Channel<Integer> values = channel();
+        AtomicInteger received = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(8);
+
+        // more routines parked in receive than there are workers; each parks through ManagedBlocker
+        for (int i = 0; i < 8; i++) {
+            scheduler.execute(() -> {
+                received.addAndGet(values.receive());
+                done.countDown();
+            });
+        }
+        scheduler.execute(() -> {
+            for (int i = 0; i < 8; i++) {
+                values.send(1);
+            }
+        });
+
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertThat(received.get(), is(8));
+        assertTrue(scheduler.getPoolSize() > scheduler.getParallelism()); // compensating workers were started
+        scheduler.shutdown();
+    }
+}